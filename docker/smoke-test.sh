@@ -0,0 +1,83 @@
+#!/bin/sh
+# Startar applikationen med givet kommando på en in-memory H2 och går igenom kategori-,
+# produkt-, tagg- och bildendpoints med en egen signerad JWT. Avslutas med fel vid första
+# oväntade statuskod. Används mot native-binären i Dockerfile.native men fungerar lika
+# bra mot jar-filen.
+#
+# Användning: smoke-test.sh <kommando...>
+set -eu
+
+PORT=${SMOKE_TEST_PORT:-18081}
+BASE="http://localhost:$PORT"
+LOG=$(mktemp)
+WORK=$(mktemp -d)
+
+b64url() {
+    base64 | tr '+/' '-_' | tr -d '=\n'
+}
+
+# HS256-token med samma hemlighet som applikationen startas med
+JWT_SECRET=$(head -c 32 /dev/urandom | base64 | tr -d '\n')
+key_hex=$(printf '%s' "$JWT_SECRET" | base64 -d | od -An -tx1 | tr -d ' \n')
+exp=$(( $(date +%s) + 600 ))
+signing_input="$(printf '{"alg":"HS256","typ":"JWT"}' | b64url).$(printf '{"sub":"smoke-test","exp":%d}' "$exp" | b64url)"
+signature=$(printf '%s' "$signing_input" | openssl dgst -sha256 -mac HMAC -macopt "hexkey:$key_hex" -binary | b64url)
+TOKEN="$signing_input.$signature"
+
+JWT_SECRET=$JWT_SECRET BACKEND_PORT=$PORT \
+    SPRING_DATASOURCE_URL="jdbc:h2:mem:smoke;DB_CLOSE_DELAY=-1" UPLOAD_RECONCILER_ENABLED=false \
+    "$@" --file.upload-dir="$WORK/uploads" >"$LOG" 2>&1 &
+pid=$!
+trap 'kill "$pid" 2>/dev/null || true; rm -rf "$WORK" "$LOG"' EXIT
+
+until curl -fs -o /dev/null "$BASE/actuator/health"; do
+    if ! kill -0 "$pid" 2>/dev/null; then
+        cat "$LOG"
+        echo "smoke-test: application exited during startup" >&2
+        exit 1
+    fi
+    sleep 0.1
+done
+
+# check <förväntad status> <beskrivning> <curl-argument...>; svaret hamnar i $WORK/body
+check() {
+    expected=$1
+    description=$2
+    shift 2
+    status=$(curl -s -o "$WORK/body" -w '%{http_code}' -H "Authorization: Bearer $TOKEN" "$@")
+    if [ "$status" != "$expected" ]; then
+        echo "smoke-test: $description returned $status, expected $expected" >&2
+        cat "$WORK/body" >&2
+        tail -n 50 "$LOG" >&2
+        exit 1
+    fi
+    echo "ok  $status  $description"
+}
+
+check 200 "POST /category" -H 'Content-Type: application/json' \
+    -d '{"name":"Frukt"}' "$BASE/category"
+check 200 "GET /category" "$BASE/category"
+check 201 "POST /product" -H 'Content-Type: application/json' \
+    -d '{"productName":"Apple","categoryName":"Frukt","price":3.5,"stockQuantity":10,"tagNames":["rod","svensk"]}' \
+    "$BASE/product"
+product_id=$(sed -n 's/.*"id":\([0-9]*\).*/\1/p' "$WORK/body")
+check 200 "GET /product" "$BASE/product"
+check 200 "GET /product/Frukt" "$BASE/product/Frukt"
+check 200 "GET /product/search/tags" "$BASE/product/search/tags?tags=rod"
+check 200 "POST /product/{id}/tags" -H 'Content-Type: application/json' \
+    -d '["ekologisk"]' "$BASE/product/$product_id/tags"
+check 200 "GET /tag" "$BASE/tag"
+check 200 "GET /tag/name/{name}" "$BASE/tag/name/rod"
+check 200 "POST /product/inventoryManager" -H 'Content-Type: application/json' \
+    -d "{\"inventoryChanges\":[{\"productId\":$product_id,\"inventoryChange\":-1}]}" \
+    "$BASE/product/inventoryManager"
+
+head -c 4096 /dev/urandom > "$WORK/image.png"
+check 201 "POST /product/{id}/image" -F "file=@$WORK/image.png;type=image/png" "$BASE/product/$product_id/image"
+file_name=$(sed -n 's/.*"fileName":"\([^"]*\)".*/\1/p' "$WORK/body")
+check 200 "GET /product/{id}/images" "$BASE/product/$product_id/images"
+check 200 "GET /product/images/batch?ids=" "$BASE/product/images/batch?ids=$product_id"
+check 200 "GET /product/{id}/image/{fileName}" -L "$BASE/product/$product_id/image/$file_name"
+cmp -s "$WORK/body" "$WORK/image.png" || { echo "smoke-test: downloaded image differs" >&2; exit 1; }
+
+echo "smoke-test: all endpoints ok"
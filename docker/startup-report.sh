@@ -0,0 +1,44 @@
+#!/bin/sh
+# Startar applikationen med givet kommando (JVM eller native), mäter tid till första
+# lyckade request mot /actuator/health och processens RSS, och lägger till en rad i
+# rapportfilen. Med STARTUP_BUDGET_MS satt avbryts bygget om tiden överskrids.
+#
+# Användning: startup-report.sh <rapportfil> <etikett> <kommando...>
+set -eu
+
+REPORT=$1
+LABEL=$2
+shift 2
+PORT=${STARTUP_REPORT_PORT:-18080}
+LOG=$(mktemp)
+
+# /proc/uptime har centisekundsupplösning, vilket räcker för starttider
+start=$(cut -d' ' -f1 /proc/uptime)
+BACKEND_PORT=$PORT "$@" >"$LOG" 2>&1 &
+pid=$!
+
+until curl -fs -o /dev/null "http://localhost:$PORT/actuator/health"; do
+    if ! kill -0 "$pid" 2>/dev/null; then
+        cat "$LOG"
+        echo "startup-report: $LABEL exited before serving a request" >&2
+        exit 1
+    fi
+    sleep 0.05
+done
+end=$(cut -d' ' -f1 /proc/uptime)
+rss_kb=$(awk '/^VmRSS:/ { print $2 }' "/proc/$pid/status")
+
+kill "$pid"
+wait "$pid" || true
+
+started=$(sed -n 's/.*Started ProductService1Application in \([0-9.]*\) seconds.*/\1/p' "$LOG" | head -n 1)
+first_request_ms=$(awk -v a="$start" -v b="$end" 'BEGIN { printf "%d", (b - a) * 1000 }')
+rm -f "$LOG"
+
+printf '%-10s context started in %6s s, first request served after %6d ms, RSS %6d MB\n' \
+    "$LABEL" "${started:-?}" "$first_request_ms" "$((rss_kb / 1024))" | tee -a "$REPORT"
+
+if [ -n "${STARTUP_BUDGET_MS:-}" ] && [ "$first_request_ms" -gt "$STARTUP_BUDGET_MS" ]; then
+    echo "startup-report: $LABEL took $first_request_ms ms, budget is $STARTUP_BUDGET_MS ms" >&2
+    exit 1
+fi
@@ -0,0 +1,74 @@
+package se.product_service_1.benchmark;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import se.product_service_1.ProductService1Application;
+import se.product_service_1.model.Category;
+import se.product_service_1.model.Product;
+import se.product_service_1.service.CategoryService;
+import se.product_service_1.service.ProductService;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Startar applikationen mot en egen in-memory H2 och seedar en katalog för benchmarks.
+ */
+final class BenchmarkApplication {
+
+    static final int CATEGORIES = 10;
+    static final int TAG_POOL = 50;
+    static final int TAGS_PER_PRODUCT = 3;
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start() {
+        // Devtools läser bara systemproperties; en omstart skulle ge en andra kontext
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        // Kommandoradsargument går före application.properties
+        return new SpringApplicationBuilder(ProductService1Application.class)
+                .run("--spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                        "--JWT_SECRET=" + Base64.getEncoder().encodeToString(new byte[32]),
+                        "--server.port=0",
+                        "--file.upload-dir=target/bench-uploads",
+                        "--file.reconciler.enabled=false",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN",
+                        "--logging.level.org.springframework.web.multipart=WARN",
+                        "--logging.level.org.springframework.web.servlet.mvc.method.annotation=WARN");
+    }
+
+    static void seed(ConfigurableApplicationContext context, int products) {
+        CategoryService categoryService = context.getBean(CategoryService.class);
+        ProductService productService = context.getBean(ProductService.class);
+
+        for (int c = 0; c < CATEGORIES; c++) {
+            categoryService.addCategory(Category.builder().name(categoryName(c)).build());
+        }
+        for (int p = 0; p < products; p++) {
+            Category category = categoryService.getCategoryByName(categoryName(p % CATEGORIES));
+            Product product = Product.builder()
+                    .name("product-" + p)
+                    .category(category)
+                    .price(10.0 + p % 500)
+                    .stockQuantity(1_000_000)
+                    .build();
+            List<String> tags = new ArrayList<>(TAGS_PER_PRODUCT);
+            for (int t = 0; t < TAGS_PER_PRODUCT; t++) {
+                tags.add(tagName((p + t * 7) % TAG_POOL));
+            }
+            productService.addProductWithTags(product, tags);
+        }
+    }
+
+    static String categoryName(int index) {
+        return "category-" + index;
+    }
+
+    static String tagName(int index) {
+        return "tag-" + index;
+    }
+}
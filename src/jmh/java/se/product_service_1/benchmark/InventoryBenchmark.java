@@ -0,0 +1,69 @@
+package se.product_service_1.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import se.product_service_1.dto.InventoryManagementRequest;
+import se.product_service_1.dto.InventoryManagementRequest.InventoryChange;
+import se.product_service_1.model.Product;
+import se.product_service_1.service.ProductService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ProductService.updateInventoryChange med K orderrader. Varannan anrop drar av och
+ * varannan lägger tillbaka så att lagersaldot hålls stabilt under mätningen.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InventoryBenchmark {
+
+    @Param({"1", "10", "50"})
+    public int lineItems;
+
+    private ConfigurableApplicationContext context;
+    private ProductService productService;
+    private InventoryManagementRequest take;
+    private InventoryManagementRequest giveBack;
+    private boolean taking;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        BenchmarkApplication.seed(context, Math.max(lineItems, 100));
+        productService = context.getBean(ProductService.class);
+
+        List<Product> products = productService.getAllProducts();
+        take = request(products, -1);
+        giveBack = request(products, 1);
+    }
+
+    private InventoryManagementRequest request(List<Product> products, int delta) {
+        List<InventoryChange> changes = new ArrayList<>(lineItems);
+        for (int i = 0; i < lineItems; i++) {
+            InventoryChange change = new InventoryChange();
+            change.setProductId(products.get(i).getId());
+            change.setInventoryChange(delta);
+            changes.add(change);
+        }
+        InventoryManagementRequest request = new InventoryManagementRequest();
+        request.setInventoryChanges(changes);
+        return request;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Product> updateInventory() {
+        taking = !taking;
+        return productService.updateInventoryChange(taking ? take : giveBack);
+    }
+}
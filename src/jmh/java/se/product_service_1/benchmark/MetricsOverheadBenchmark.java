@@ -0,0 +1,52 @@
+package se.product_service_1.benchmark;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kostnaden per mätpunkt i samma registry-typ som produktion använder. Timern har
+ * percentil-histogram påslaget, precis som http.server.requests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricsOverheadBenchmark {
+
+    private Counter counter;
+    private Timer timer;
+    private Timer histogramTimer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        counter = Counter.builder("benchmark.bytes").register(registry);
+        timer = Timer.builder("benchmark.plain").register(registry);
+        histogramTimer = Timer.builder("benchmark.histogram").publishPercentileHistogram().register(registry);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void counterIncrement() {
+        counter.increment(1024);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void timerRecord() {
+        timer.record(250_000, TimeUnit.NANOSECONDS);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void histogramTimerRecord() {
+        histogramTimer.record(250_000, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,51 @@
+package se.product_service_1.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import se.product_service_1.service.PriceIndex;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PriceIndex utan applikationen: en sida ur ett prisintervall och antalet träffar i intervallet.
+ * Med -prof gc ska gc.alloc.rate.norm vara 0 för båda.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PriceIndexBenchmark {
+
+    @Param({"1000000"})
+    public int products;
+
+    private PriceIndex index;
+    private final long[] page = new long[20];
+    private double minPrice;
+    private double maxPrice;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Priserna 0..10000 i jämna steg, så att intervallet nedan träffar ca 10 % av produkterna
+        SplittableRandom random = new SplittableRandom(42);
+        PriceIndex.Builder builder = new PriceIndex.Builder();
+        for (int i = 0; i < products; i++) {
+            builder.add(i, i * 10_000.0 / products);
+        }
+        index = builder.build();
+        minPrice = 4_000.0 + random.nextInt(10);
+        maxPrice = minPrice + 1_000.0;
+    }
+
+    @Benchmark
+    public int pageOfRange() {
+        return index.page(minPrice, maxPrice, 100, false, page);
+    }
+
+    @Benchmark
+    public int countOfRange() {
+        return index.count(minPrice, maxPrice);
+    }
+}
@@ -0,0 +1,74 @@
+package se.product_service_1.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import se.product_service_1.dto.ProductResponse;
+import se.product_service_1.model.ProductListing;
+import se.product_service_1.repository.ProductListingRepository;
+import se.product_service_1.service.ProductService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Produktlistan som GET /product bygger vid cachemiss, för N produkter. PROJECTION är vägen
+ * applikationen använder; ENTITIES laddar läsmodellen som entiteter och mappar dem, som
+ * jämförelse. Kör med {@code -prof gc} för allokering per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductListingBenchmark {
+
+    public enum ReadPath { ENTITIES, PROJECTION }
+
+    @Param({"100", "1000"})
+    public int products;
+
+    @Param
+    public ReadPath path;
+
+    private ConfigurableApplicationContext context;
+    private ProductService productService;
+    private ProductListingRepository productListingRepository;
+    private TransactionTemplate readOnly;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        BenchmarkApplication.seed(context, products);
+        productService = context.getBean(ProductService.class);
+        productListingRepository = context.getBean(ProductListingRepository.class);
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<ProductResponse> listAllProducts() {
+        return switch (path) {
+            case PROJECTION -> productService.getAllProductResponses();
+            case ENTITIES -> readOnly.execute(status -> toResponses(productListingRepository.findAll(Sort.by("productId"))));
+        };
+    }
+
+    private static List<ProductResponse> toResponses(List<ProductListing> listings) {
+        List<ProductResponse> responses = new ArrayList<>(listings.size());
+        for (ProductListing listing : listings) {
+            responses.add(new ProductResponse(listing.getProductId(), listing.getName(), listing.getCategoryName(),
+                    listing.getPrice(), listing.getStockQuantity(), listing.getTagNames()));
+        }
+        return responses;
+    }
+}
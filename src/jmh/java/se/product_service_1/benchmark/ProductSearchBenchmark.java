@@ -0,0 +1,62 @@
+package se.product_service_1.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import se.product_service_1.dto.ProductResponse;
+import se.product_service_1.dto.ProductSearchRequest;
+import se.product_service_1.service.ProductService;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ProductService.searchProducts i varje sökläge.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductSearchBenchmark {
+
+    public enum SearchMode { TAGS_ANY, TAGS_ALL, TAG_PATTERN, CATEGORY, COMBINED, ALL }
+
+    @Param({"1000"})
+    public int products;
+
+    @Param
+    public SearchMode mode;
+
+    private ConfigurableApplicationContext context;
+    private ProductService productService;
+    private ProductSearchRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        BenchmarkApplication.seed(context, products);
+        productService = context.getBean(ProductService.class);
+
+        List<String> tags = List.of(BenchmarkApplication.tagName(1), BenchmarkApplication.tagName(8));
+        request = switch (mode) {
+            case TAGS_ANY -> ProductSearchRequest.builder().tagNames(tags).build();
+            case TAGS_ALL -> ProductSearchRequest.builder().tagNames(tags).requireAllTags(true).build();
+            case TAG_PATTERN -> ProductSearchRequest.builder().searchTerm("tag-1").build();
+            case CATEGORY -> ProductSearchRequest.builder().categoryName(BenchmarkApplication.categoryName(3)).build();
+            case COMBINED -> ProductSearchRequest.builder().tagNames(tags).categoryName(BenchmarkApplication.categoryName(3))
+                    .minPrice(10.0).inStockOnly(true).sortBy("price").page(0).size(20).build();
+            case ALL -> new ProductSearchRequest();
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<ProductResponse> search() {
+        return productService.searchProducts(request);
+    }
+}
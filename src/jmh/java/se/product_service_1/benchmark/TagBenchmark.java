@@ -0,0 +1,53 @@
+package se.product_service_1.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import se.product_service_1.model.Tag;
+import se.product_service_1.service.TagService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TagService.getOrCreateTags för K redan existerande taggar (det vanliga fallet vid
+ * produktskapande).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TagBenchmark {
+
+    @Param({"1", "5", "20"})
+    public int tags;
+
+    private ConfigurableApplicationContext context;
+    private TagService tagService;
+    private List<String> tagNames;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        BenchmarkApplication.seed(context, 100);
+        tagService = context.getBean(TagService.class);
+
+        tagNames = new ArrayList<>(tags);
+        for (int i = 0; i < tags; i++) {
+            tagNames.add(BenchmarkApplication.tagName(i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Set<Tag> getOrCreateTags() {
+        return tagService.getOrCreateTags(tagNames);
+    }
+}
@@ -0,0 +1,314 @@
+package se.product_service_1.loadtest;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockMultipartFile;
+import se.product_service_1.ProductService1Application;
+import se.product_service_1.model.Category;
+import se.product_service_1.model.Product;
+import se.product_service_1.model.ProductImage;
+import se.product_service_1.service.CategoryService;
+import se.product_service_1.service.FileStorageService;
+import se.product_service_1.service.ProductService;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fristående lastgenerator. Startar applikationen på H2, seedar en katalog och kör
+ * varje scenario med konstant ankomsttakt (öppen modell).
+ * <p>
+ * Latens mäts från den tidpunkt förfrågan <em>skulle</em> ha skickats, inte när den
+ * faktiskt skickades, så att en långsam server inte döljs av coordinated omission.
+ * <p>
+ * Argument (key=value): rate, duration, warmup, scenarios, products, out, threads, pool.
+ * {@code threads} är en kommaseparerad lista av trådlägen som körs efter varandra,
+ * t.ex. {@code threads=platform:50,platform:200,virtual}.
+ */
+public class LoadTest {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        double rate = Double.parseDouble(options.getOrDefault("rate", "200"));
+        Duration duration = Duration.parse(options.getOrDefault("duration", "PT30S"));
+        Duration warmup = Duration.parse(options.getOrDefault("warmup", "PT10S"));
+        int products = Integer.parseInt(options.getOrDefault("products", "500"));
+        Path outDir = Paths.get(options.getOrDefault("out", "target/loadtest"));
+        List<Scenario> scenarios = options.containsKey("scenarios")
+                ? Arrays.stream(options.get("scenarios").split(",")).map(s -> Scenario.valueOf(s.trim().toUpperCase())).toList()
+                : List.of(Scenario.values());
+        List<String> threadModes = Arrays.stream(options.getOrDefault("threads", "platform").split(","))
+                .map(String::trim).toList();
+
+        Files.createDirectories(outDir);
+        List<String> summary = new ArrayList<>();
+        summary.add(String.format("%-16s %-42s %9s %7s %9s %9s %9s %9s %9s %9s",
+                "threads", "scenario", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        List<String> resources = new ArrayList<>();
+        resources.add(String.format("%-16s %14s %16s", "threads", "peak threads", "peak heap MB"));
+
+        for (String threadMode : threadModes) {
+            ResourceSampler sampler = new ResourceSampler();
+            // Med flera lägen får varje histogramfil lägesnamnet som prefix
+            String filePrefix = threadModes.size() > 1 ? threadMode.replace(':', '-') + "-" : "";
+            runMode(threadMode, options, rate, duration, warmup, products, outDir, scenarios, summary, sampler, filePrefix);
+            resources.add(String.format("%-16s %14d %16.1f", threadMode, sampler.peakThreads(),
+                    sampler.peakHeapBytes() / (1024.0 * 1024.0)));
+        }
+
+        summary.add("");
+        summary.addAll(resources);
+        summary.add("target rate: " + rate + " req/s, duration: " + duration + ", warmup: " + warmup);
+        summary.forEach(System.out::println);
+        Files.write(outDir.resolve("summary.txt"), summary);
+    }
+
+    /**
+     * Kör alla scenarier mot en applikation startad i trådläget threadMode:
+     * {@code platform}, {@code platform:<max threads>} eller {@code virtual}.
+     */
+    private static void runMode(String threadMode, Map<String, String> options, double rate, Duration duration,
+                                Duration warmup, int products, Path outDir, List<Scenario> scenarios,
+                                List<String> summary, ResourceSampler sampler, String filePrefix) throws Exception {
+        boolean virtual = threadMode.equals("virtual");
+        String maxThreads = threadMode.startsWith("platform:") ? threadMode.substring("platform:".length()) : "200";
+
+        byte[] keyBytes = new byte[32];
+        new SecureRandom().nextBytes(keyBytes);
+        SecretKey key = Keys.hmacShaKeyFor(keyBytes);
+
+        // Devtools läser bara systemproperties; en omstart skulle ge en andra kontext
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        // Kommandoradsargument går före application.properties
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(ProductService1Application.class)
+                .run("--spring.datasource.url=jdbc:h2:mem:loadtest-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                        "--JWT_SECRET=" + Base64.getEncoder().encodeToString(keyBytes),
+                        "--server.port=0",
+                        "--spring.threads.virtual.enabled=" + virtual,
+                        "--server.tomcat.threads.max=" + maxThreads,
+                        "--spring.datasource.hikari.maximum-pool-size=" + options.getOrDefault("pool", "10"),
+                        "--file.upload-dir=" + outDir.resolve("uploads"),
+                        "--file.reconciler.enabled=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.org.springframework.web.multipart=WARN",
+                        "--logging.level.org.springframework.web.servlet.mvc.method.annotation=WARN");
+
+        try {
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            Scenario.Fixture fixture = seed(context, URI.create("http://localhost:" + port), products);
+            String authorization = "Bearer " + mintToken(key, Duration.ofHours(1).plus(duration.multipliedBy(scenarios.size())));
+            HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+            for (Scenario scenario : scenarios) {
+                run(client, authorization, fixture, scenario, rate, warmup);
+                sampler.start();
+                Result result = run(client, authorization, fixture, scenario, rate, duration);
+                sampler.stop();
+
+                Histogram histogram = result.histogram();
+                summary.add(String.format("%-16s %-42s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f",
+                        threadMode, scenario.description(), histogram.getTotalCount(), result.errors(), result.throughput(),
+                        histogram.getValueAtPercentile(50) / NANOS_PER_MILLI,
+                        histogram.getValueAtPercentile(90) / NANOS_PER_MILLI,
+                        histogram.getValueAtPercentile(99) / NANOS_PER_MILLI,
+                        histogram.getValueAtPercentile(99.9) / NANOS_PER_MILLI,
+                        histogram.getMaxValue() / NANOS_PER_MILLI));
+                writeDistribution(outDir.resolve(filePrefix + scenario.name().toLowerCase() + ".hgrm"), histogram);
+            }
+        } finally {
+            context.close();
+        }
+    }
+
+    private static Result run(HttpClient client, String authorization, Scenario.Fixture fixture,
+                              Scenario scenario, double rate, Duration duration) throws InterruptedException {
+        Recorder recorder = new Recorder(3);
+        AtomicLong completed = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        long total = Math.max(1, (long) (duration.toNanos() / (double) intervalNanos));
+        // Varje request registreras en gång: när svaret kommer, eller vid deadline om det aldrig kom
+        AtomicIntegerArray recorded = new AtomicIntegerArray(Math.toIntExact(total));
+        long start = System.nanoTime();
+
+        for (int i = 0; i < total; i++) {
+            int index = i;
+            long intendedStart = start + i * intervalNanos;
+            long wait;
+            while ((wait = intendedStart - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            HttpRequest request = scenario.request(fixture, i)
+                    .header("Authorization", authorization)
+                    .timeout(Duration.ofSeconds(30))
+                    .build();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        if (!recorded.compareAndSet(index, 0, 1)) {
+                            return;
+                        }
+                        recorder.recordValue(System.nanoTime() - intendedStart);
+                        if (failure != null || response.statusCode() >= 400) {
+                            errors.incrementAndGet();
+                        }
+                        completed.incrementAndGet();
+                    });
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (completed.get() < total && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        long completedInTime = completed.get();
+        // Requests utan svar räknas som fel med sin väntetid hittills, annars ser percentilerna
+        // bättre ut ju fler requests servern aldrig hinner svara på
+        long now = System.nanoTime();
+        for (int i = 0; i < total; i++) {
+            if (recorded.compareAndSet(i, 0, 1)) {
+                recorder.recordValue(now - (start + i * intervalNanos));
+                errors.incrementAndGet();
+            }
+        }
+        return new Result(recorder.getIntervalHistogram(), errors.get(), completedInTime / elapsedSeconds);
+    }
+
+    private static Scenario.Fixture seed(ConfigurableApplicationContext context, URI baseUri, int products)
+            throws IOException {
+        CategoryService categoryService = context.getBean(CategoryService.class);
+        ProductService productService = context.getBean(ProductService.class);
+        FileStorageService fileStorageService = context.getBean(FileStorageService.class);
+
+        List<String> tagNames = new ArrayList<>();
+        for (int t = 0; t < 50; t++) {
+            tagNames.add("tag-" + t);
+        }
+        for (int c = 0; c < 10; c++) {
+            categoryService.addCategory(Category.builder().name("category-" + c).build());
+        }
+
+        List<Long> productIds = new ArrayList<>(products);
+        for (int p = 0; p < products; p++) {
+            Product product = Product.builder()
+                    .name("product-" + p)
+                    .category(categoryService.getCategoryByName("category-" + p % 10))
+                    .price(10.0 + p % 500)
+                    .stockQuantity(1_000_000)
+                    .build();
+            List<String> tags = List.of(tagNames.get(p % 50), tagNames.get((p + 7) % 50), tagNames.get((p + 19) % 50));
+            productIds.add(productService.addProductWithTags(product, tags).getId());
+        }
+
+        byte[] imageBytes = new byte[20 * 1024];
+        new SecureRandom().nextBytes(imageBytes);
+        ProductImage image = fileStorageService.storeFile(productIds.get(0),
+                new MockMultipartFile("file", "hero.png", "image/png", imageBytes));
+        String imageByNamePath = "/product/" + image.getProductId() + "/image/" + image.getFileName();
+        String imagePath = "/product/" + image.getProductId() + "/image/" + image.getContentHash() + "/" + image.getFileName();
+
+        return new Scenario.Fixture(baseUri, productIds, tagNames, imagePath, imageByNamePath);
+    }
+
+    /**
+     * HS256-signerad token med samma nyckel som SecurityConfig.jwtDecoder verifierar mot.
+     */
+    private static String mintToken(SecretKey key, Duration validity) {
+        Instant now = Instant.now();
+        return Jwts.builder()
+                .subject("loadtest")
+                .issuedAt(Date.from(now))
+                .expiration(Date.from(now.plus(validity)))
+                .signWith(key, Jwts.SIG.HS256)
+                .compact();
+    }
+
+    private static void writeDistribution(Path file, Histogram histogram) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+            histogram.outputPercentileDistribution(out, NANOS_PER_MILLI);
+        }
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator > 0) {
+                options.put(arg.substring(0, separator), arg.substring(separator + 1));
+            }
+        }
+        return options;
+    }
+
+    private record Result(Histogram histogram, long errors, double throughput) {
+    }
+
+    /**
+     * Samplar antal plattformstrådar och använd heap var 50:e ms under mätperioderna.
+     * Lastgeneratorn kör i samma JVM och ingår alltså i siffrorna, lika för alla lägen.
+     */
+    private static final class ResourceSampler {
+        private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        private volatile boolean running;
+        private Thread sampler;
+        private int peakThreads;
+        private long peakHeapBytes;
+
+        void start() {
+            running = true;
+            sampler = Thread.ofPlatform().daemon().name("loadtest-sampler").start(() -> {
+                while (running) {
+                    peakThreads = Math.max(peakThreads, threads.getThreadCount());
+                    peakHeapBytes = Math.max(peakHeapBytes, memory.getHeapMemoryUsage().getUsed());
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(50));
+                }
+            });
+        }
+
+        void stop() throws InterruptedException {
+            running = false;
+            sampler.join();
+        }
+
+        int peakThreads() {
+            return peakThreads;
+        }
+
+        long peakHeapBytes() {
+            return peakHeapBytes;
+        }
+    }
+}
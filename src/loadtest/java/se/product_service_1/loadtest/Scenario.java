@@ -0,0 +1,98 @@
+package se.product_service_1.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Endpoints som lasttestet kan driva. Varje förfrågan byggs från fixturen och ett
+ * löpnummer så att lasten sprids över de seedade produkterna.
+ */
+enum Scenario {
+
+    PRODUCTS("GET /product") {
+        @Override
+        HttpRequest.Builder request(Fixture fixture, long sequence) {
+            return HttpRequest.newBuilder(fixture.uri("/product")).GET();
+        }
+    },
+    SEARCH("POST /product/search") {
+        @Override
+        HttpRequest.Builder request(Fixture fixture, long sequence) {
+            String tag = fixture.tagName(sequence);
+            return HttpRequest.newBuilder(fixture.uri("/product/search"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"tagNames\":[\"" + tag + "\"]}"));
+        }
+    },
+    INVENTORY("POST /product/inventoryManager") {
+        @Override
+        HttpRequest.Builder request(Fixture fixture, long sequence) {
+            // Växla mellan att dra av och lägga tillbaka så att saldot håller sig stabilt
+            int delta = sequence % 2 == 0 ? -1 : 1;
+            String body = "{\"inventoryChanges\":[{\"productId\":" + fixture.productId(sequence / 2)
+                    + ",\"inventoryChange\":" + delta + "}]}";
+            return HttpRequest.newBuilder(fixture.uri("/product/inventoryManager"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body));
+        }
+    },
+    IMAGE("GET /product/{id}/image/{hash}/{fileName}") {
+        @Override
+        HttpRequest.Builder request(Fixture fixture, long sequence) {
+            return HttpRequest.newBuilder(fixture.uri(fixture.imagePath())).GET();
+        }
+    },
+    IMAGE_BY_NAME("GET /product/{id}/image/{fileName}") {
+        @Override
+        HttpRequest.Builder request(Fixture fixture, long sequence) {
+            return HttpRequest.newBuilder(fixture.uri(fixture.imageByNamePath())).GET();
+        }
+    },
+    IMAGE_LIST("GET /product/images/batch?ids=...") {
+        @Override
+        HttpRequest.Builder request(Fixture fixture, long sequence) {
+            String ids = fixture.productIds(sequence, 50).stream()
+                    .map(String::valueOf)
+                    .collect(Collectors.joining(","));
+            return HttpRequest.newBuilder(fixture.uri("/product/images/batch?ids=" + ids)).GET();
+        }
+    };
+
+    private final String description;
+
+    Scenario(String description) {
+        this.description = description;
+    }
+
+    String description() {
+        return description;
+    }
+
+    abstract HttpRequest.Builder request(Fixture fixture, long sequence);
+
+    /**
+     * Seedad data och adresser som scenarierna behöver.
+     */
+    record Fixture(URI baseUri, List<Long> productIds, List<String> tagNames,
+                   String imagePath, String imageByNamePath) {
+
+        URI uri(String path) {
+            return baseUri.resolve(path);
+        }
+
+        long productId(long sequence) {
+            return productIds.get((int) (sequence % productIds.size()));
+        }
+
+        List<Long> productIds(long sequence, int count) {
+            int from = (int) (sequence % Math.max(1, productIds.size() - count));
+            return productIds.subList(from, Math.min(from + count, productIds.size()));
+        }
+
+        String tagName(long sequence) {
+            return tagNames.get((int) (sequence % tagNames.size()));
+        }
+    }
+}
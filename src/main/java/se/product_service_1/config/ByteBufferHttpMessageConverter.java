@@ -0,0 +1,64 @@
+package se.product_service_1.config;
+
+import org.apache.catalina.connector.CoyoteOutputStream;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+
+/**
+ * Skriver en (off-heap) ByteBuffer som svarskropp. Under Tomcat skrivs buffern direkt
+ * till connectorns utbuffert så att bytes aldrig kopieras via Java-heapen.
+ * <p>
+ * Svaret packas aldrig upp: kroppen skrivs alltid till den ström som responsens wrappers
+ * lämnar ut, så deras headers (SQL-räkning, Server-Timing) och eventuella omskrivningar av
+ * kroppen gäller även här. Den direkta vägen tas bara när den strömmen är Tomcats egen;
+ * en wrapper som byter ström (t.ex. Spring Securitys header-wrapper) ger i stället en
+ * kopiering via kanalens heapbuffert i bitar om 8 kB.
+ */
+@Component
+public class ByteBufferHttpMessageConverter extends AbstractHttpMessageConverter<ByteBuffer> {
+
+    public ByteBufferHttpMessageConverter() {
+        super(MediaType.ALL);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return ByteBuffer.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected ByteBuffer readInternal(Class<? extends ByteBuffer> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("ByteBuffer request bodies are not supported", inputMessage);
+    }
+
+    @Override
+    protected Long getContentLength(ByteBuffer buffer, MediaType contentType) {
+        return (long) buffer.remaining();
+    }
+
+    @Override
+    protected void writeInternal(ByteBuffer buffer, HttpOutputMessage outputMessage) throws IOException {
+        // getBody skriver headers och går genom alla wrappers innan strömmen lämnas ut
+        OutputStream body = outputMessage.getBody();
+        ByteBuffer view = buffer.duplicate();
+        if (body instanceof CoyoteOutputStream coyote) {
+            coyote.write(view);
+            return;
+        }
+        Channels.newChannel(body).write(view);
+    }
+}
@@ -0,0 +1,104 @@
+package se.product_service_1.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Cache framför en JwtDecoder för tokens som redan verifierats. Klienter återanvänder samma
+ * token för tusentals anrop, så upprepade requests kostar en SHA-256 och en uppslagning i
+ * stället för parsning och HMAC-verifiering.
+ * <p>
+ * Nyckeln är en digest av råtoken så att nycklarna har fast storlek. En post lever till
+ * tokenets exp, dock högst maxTtl. Tokens som inte går att verifiera cachas aldrig.
+ */
+public class CachingJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder delegate;
+    private final Cache<String, Jwt> cache;
+    private final Timer verificationTimer;
+
+    public CachingJwtDecoder(JwtDecoder delegate, long maxEntries, Duration maxTtl, MeterRegistry meterRegistry) {
+        this(delegate, maxEntries, maxTtl, meterRegistry, Clock.systemUTC());
+    }
+
+    CachingJwtDecoder(JwtDecoder delegate, long maxEntries, Duration maxTtl, MeterRegistry meterRegistry, Clock clock) {
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfter(new UntilExpiry(maxTtl, clock))
+                .recordStats()
+                .build();
+        this.verificationTimer = Timer.builder("security.jwt.verification")
+                .description("Full JWT parsing and signature verification on cache misses")
+                .register(meterRegistry);
+
+        Gauge.builder("security.jwt.cache.size", cache, Cache::estimatedSize)
+                .register(meterRegistry);
+        Gauge.builder("security.jwt.cache.hit_ratio", cache, c -> c.stats().hitRate())
+                .register(meterRegistry);
+        FunctionCounter.builder("security.jwt.cache.requests", cache, c -> c.stats().hitCount())
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("security.jwt.cache.requests", cache, c -> c.stats().missCount())
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        // Caffeine kör laddningen en gång per nyckel även när samma token kommer in parallellt;
+        // ett undantag från delegaten propageras och lämnar ingen post efter sig
+        return cache.get(digest(token), key -> verificationTimer.record(() -> delegate.decode(token)));
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+
+    private record UntilExpiry(Duration maxTtl, Clock clock) implements Expiry<String, Jwt> {
+
+        @Override
+        public long expireAfterCreate(String key, Jwt jwt, long currentTime) {
+            Duration ttl = maxTtl;
+            Instant expiresAt = jwt.getExpiresAt();
+            if (expiresAt != null) {
+                Duration untilExpiry = Duration.between(clock.instant(), expiresAt);
+                if (untilExpiry.compareTo(ttl) < 0) {
+                    ttl = untilExpiry.isNegative() ? Duration.ZERO : untilExpiry;
+                }
+            }
+            return ttl.toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Jwt jwt, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, jwt, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Jwt jwt, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
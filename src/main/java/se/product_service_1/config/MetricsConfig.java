@@ -0,0 +1,43 @@
+package se.product_service_1.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import se.product_service_1.service.CatalogResponseCache;
+import se.product_service_1.service.HotImageCache;
+import se.product_service_1.service.ProductImageMetadataCache;
+
+/**
+ * Applikationsspecifika mätare. HTTP-timers, repository-timers, Hibernate, HikariCP och
+ * JVM/GC registreras av Spring Boot Actuator.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder imageCacheMetrics(HotImageCache hotImageCache, ProductImageMetadataCache metadataCache) {
+        return registry -> {
+            Gauge.builder("product.image.hot_cache.resident", hotImageCache, HotImageCache::residentBytes)
+                    .baseUnit("bytes")
+                    .description("Bytes held off-heap by the hot image cache")
+                    .register(registry);
+            Gauge.builder("product.image.hot_cache.hit_ratio", hotImageCache, HotImageCache::hitRatio)
+                    .register(registry);
+            Gauge.builder("product.image.metadata_cache.size", metadataCache, ProductImageMetadataCache::size)
+                    .register(registry);
+            Gauge.builder("product.image.metadata_cache.hit_ratio", metadataCache, ProductImageMetadataCache::hitRatio)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder catalogResponseCacheMetrics(CatalogResponseCache catalogResponseCache) {
+        return registry -> {
+            Gauge.builder("catalog.response_cache.size", catalogResponseCache, CatalogResponseCache::size)
+                    .register(registry);
+            Gauge.builder("catalog.response_cache.hit_ratio", catalogResponseCache, CatalogResponseCache::hitRatio)
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,87 @@
+package se.product_service_1.config;
+
+import net.ttddyy.dsproxy.proxy.ProxyJdbcObject;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import se.product_service_1.dto.*;
+import se.product_service_1.exception.GlobalExceptionHandler;
+import se.product_service_1.model.Category;
+import se.product_service_1.model.Product;
+import se.product_service_1.model.ProductImage;
+import se.product_service_1.model.ProductTag;
+import se.product_service_1.model.Tag;
+
+import javax.sql.DataSource;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Reachability-metadata för native image utöver det Spring AOT och GraalVM:s
+ * metadata-repository redan täcker. Används bara av native-bygget; på JVM:en är
+ * registreringen en no-op.
+ */
+@Configuration
+@ImportRuntimeHints(NativeHintsConfig.Hints.class)
+public class NativeHintsConfig {
+
+    // jjwt-api laddar sina implementationer med Class.forName
+    private static final List<String> JJWT_IMPLEMENTATIONS = List.of(
+            "io.jsonwebtoken.impl.security.KeysBridge",
+            "io.jsonwebtoken.impl.security.JwksBridge",
+            "io.jsonwebtoken.impl.security.StandardSecureDigestAlgorithms",
+            "io.jsonwebtoken.impl.security.StandardKeyAlgorithms",
+            "io.jsonwebtoken.impl.security.StandardEncryptionAlgorithms",
+            "io.jsonwebtoken.impl.security.StandardKeyOperations",
+            "io.jsonwebtoken.impl.security.StandardHashAlgorithms",
+            "io.jsonwebtoken.impl.security.StandardCurves",
+            "io.jsonwebtoken.impl.io.StandardCompressionAlgorithms",
+            "io.jsonwebtoken.impl.DefaultJwtBuilder",
+            "io.jsonwebtoken.impl.DefaultJwtParserBuilder",
+            "io.jsonwebtoken.impl.DefaultJwtHeaderBuilder",
+            "io.jsonwebtoken.impl.DefaultClaimsBuilder");
+
+    // Typer som serialiseras av Jackson; Lombok-genererade getters/setters och builders
+    private static final List<Class<?>> BINDING_TYPES = List.of(
+            CategoryRequest.class, CategoryResponse.class, InventoryManagementRequest.class,
+            InventoryManagementRequest.InventoryChange.class, ProductDeleteRequest.class,
+            ProductImageResponse.class, ProductRequest.class, ProductResponse.class, ProductSearchRequest.class,
+            ProductUpdateRequest.class, ReconciliationReport.class, TagRequest.class, TagResponse.class,
+            GlobalExceptionHandler.ErrorResponse.class,
+            Category.class, Product.class, ProductImage.class, ProductTag.class, Tag.class);
+
+    static class Hints implements RuntimeHintsRegistrar {
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            for (String type : JJWT_IMPLEMENTATIONS) {
+                hints.reflection().registerTypeIfPresent(classLoader, type,
+                        MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS);
+            }
+
+            BindingReflectionHintsRegistrar bindingRegistrar = new BindingReflectionHintsRegistrar();
+            bindingRegistrar.registerReflectionHints(hints.reflection(), BINDING_TYPES.toArray(Class<?>[]::new));
+
+            // JCache-providern för andra nivåns cache laddas med namn och läser sin konfiguration
+            // (application.conf, reference.conf) från classpath
+            hints.reflection().registerTypeIfPresent(classLoader,
+                    "com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider",
+                    MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+            hints.resources().registerPattern("application.conf").registerPattern("reference.conf");
+
+            // datasource-proxy (QueryCountConfig) skapar JDK-proxies för varje JDBC-typ
+            for (Class<?> jdbcType : List.of(DataSource.class, Connection.class, Statement.class,
+                    PreparedStatement.class, CallableStatement.class, ResultSet.class)) {
+                hints.proxies().registerJdkProxy(TypeReference.of(ProxyJdbcObject.class), TypeReference.of(jdbcType));
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package se.product_service_1.config;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.MethodExecutionContext;
+import net.ttddyy.dsproxy.listener.MethodExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Proxar DataSource så att varje SQL-sats (och, om påslaget, varje hämtad rad) räknas
+ * i QueryCounter. Räkningen per HTTP-request görs av QueryCountFilter.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "sql.query-count", name = "enabled", havingValue = "true")
+public class QueryCountConfig {
+
+    @Bean
+    public static BeanPostProcessor queryCountingDataSourcePostProcessor(
+            @Value("${sql.query-count.count-rows:false}") boolean countRows) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // Routande DataSources (ReadReplicaConfig) delegerar till pooler som redan proxas
+                if (!(bean instanceof DataSource dataSource) || bean instanceof DelegatingDataSource) {
+                    return bean;
+                }
+                ProxyDataSourceBuilder builder = ProxyDataSourceBuilder.create(dataSource)
+                        .name(beanName)
+                        .listener(new StatementCountingListener());
+                if (countRows) {
+                    builder.proxyResultSet().methodListener(new RowCountingListener());
+                }
+                return builder.build();
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<QueryCountFilter> queryCountFilter(
+            @Value("${sql.query-count.header:false}") boolean exposeHeader) {
+        FilterRegistrationBean<QueryCountFilter> registration =
+                new FilterRegistrationBean<>(new QueryCountFilter(exposeHeader));
+        // Före säkerhetsfiltren så att även deras eventuella uppslag räknas
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    private static final class StatementCountingListener implements QueryExecutionListener {
+
+        @Override
+        public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        }
+
+        @Override
+        public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            // En batch är en rundresa mot databasen och räknas som en sats
+            QueryCounter.recordStatement();
+            if (QueryCounter.isCapturing()) {
+                for (QueryInfo query : queryInfoList) {
+                    QueryCounter.recordExecuted(new QueryCounter.ExecutedStatement(query.getQuery(), parameters(query)));
+                }
+            }
+        }
+
+        private static List<Object> parameters(QueryInfo query) {
+            if (query.getParametersList().isEmpty()) {
+                return List.of();
+            }
+            // args är (index, värde) för setXxx-anropen, (index, sql-typ) för setNull
+            return query.getParametersList().get(0).stream()
+                    .filter(operation -> operation.getArgs().length > 1 && operation.getArgs()[0] instanceof Integer)
+                    .sorted(Comparator.comparingInt(operation -> (Integer) operation.getArgs()[0]))
+                    .map(operation -> "setNull".equals(operation.getMethod().getName()) ? null : operation.getArgs()[1])
+                    .toList();
+        }
+    }
+
+    private static final class RowCountingListener implements MethodExecutionListener {
+
+        @Override
+        public void beforeMethod(MethodExecutionContext executionContext) {
+        }
+
+        @Override
+        public void afterMethod(MethodExecutionContext executionContext) {
+            if (QueryCounter.isActive()
+                    && executionContext.getTarget() instanceof ResultSet
+                    && "next".equals(executionContext.getMethod().getName())
+                    && Boolean.TRUE.equals(executionContext.getResult())) {
+                QueryCounter.recordRow();
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package se.product_service_1.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Mäter SQL-satser och rader per request. Headern sätts när svaret börjar skrivas, så
+ * satser som körs under själva serialiseringen (lazy loading) syns bara i debugloggen.
+ */
+public class QueryCountFilter extends OncePerRequestFilter {
+
+    public static final String STATEMENT_COUNT_HEADER = "X-SQL-Statement-Count";
+    public static final String ROWS_FETCHED_HEADER = "X-SQL-Rows-Fetched";
+
+    private static final Logger log = LoggerFactory.getLogger(QueryCountFilter.class);
+
+    private final boolean exposeHeader;
+
+    public QueryCountFilter(boolean exposeHeader) {
+        this.exposeHeader = exposeHeader;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        QueryCounter.Count count = QueryCounter.start();
+        HttpServletResponse target = exposeHeader ? new CountingHeaderResponse(response, count) : response;
+        try {
+            chain.doFilter(request, target);
+        } finally {
+            if (target instanceof CountingHeaderResponse countingResponse) {
+                countingResponse.writeHeaders();
+            }
+            QueryCounter.stop(count);
+            log.debug("{} {} -> {}", request.getMethod(), request.getRequestURI(), count);
+        }
+    }
+
+    private static final class CountingHeaderResponse extends HttpServletResponseWrapper {
+
+        private final QueryCounter.Count count;
+        private boolean headersWritten;
+
+        CountingHeaderResponse(HttpServletResponse response, QueryCounter.Count count) {
+            super(response);
+            this.count = count;
+        }
+
+        void writeHeaders() {
+            if (!headersWritten && !isCommitted()) {
+                setHeader(STATEMENT_COUNT_HEADER, Long.toString(count.getStatements()));
+                setHeader(ROWS_FETCHED_HEADER, Long.toString(count.getRows()));
+            }
+            headersWritten = true;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeHeaders();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeHeaders();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeHeaders();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            writeHeaders();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            writeHeaders();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            writeHeaders();
+            super.sendRedirect(location);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package se.product_service_1.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Trådbunden räkning av SQL-satser och hämtade rader. Mätningar kan nästlas (t.ex. ett
+ * test som mäter runt ett MockMvc-anrop som själv mäts av QueryCountFilter); varje
+ * satsexekvering räknas i alla öppna mätningar på tråden. En mätning startad med
+ * capture() sparar dessutom satserna med parametrar, t.ex. för att testa deras frågeplaner.
+ */
+public final class QueryCounter {
+
+    private static final ThreadLocal<Count> CURRENT = new ThreadLocal<>();
+
+    private QueryCounter() {
+    }
+
+    public static Count start() {
+        return start(false);
+    }
+
+    /** Som start(), men mätningen sparar även de körda satserna. */
+    public static Count capture() {
+        return start(true);
+    }
+
+    private static Count start(boolean capture) {
+        Count count = new Count(CURRENT.get(), capture ? new ArrayList<>() : null);
+        CURRENT.set(count);
+        return count;
+    }
+
+    /** Avslutar count och återställer den omgivande mätningen. */
+    public static void stop(Count count) {
+        if (count.parent == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(count.parent);
+        }
+    }
+
+    static void recordStatement() {
+        for (Count count = CURRENT.get(); count != null; count = count.parent) {
+            count.statements++;
+        }
+    }
+
+    static void recordExecuted(ExecutedStatement statement) {
+        for (Count count = CURRENT.get(); count != null; count = count.parent) {
+            if (count.executed != null) {
+                count.executed.add(statement);
+            }
+        }
+    }
+
+    static boolean isCapturing() {
+        for (Count count = CURRENT.get(); count != null; count = count.parent) {
+            if (count.executed != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static void recordRow() {
+        for (Count count = CURRENT.get(); count != null; count = count.parent) {
+            count.rows++;
+        }
+    }
+
+    static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    public static final class Count {
+        private final Count parent;
+        private final List<ExecutedStatement> executed;
+        private long statements;
+        private long rows;
+
+        private Count(Count parent, List<ExecutedStatement> executed) {
+            this.parent = parent;
+            this.executed = executed;
+        }
+
+        public long getStatements() {
+            return statements;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        /** Satserna som kördes, om mätningen startades med capture(). */
+        public List<ExecutedStatement> getExecuted() {
+            return executed == null ? List.of() : Collections.unmodifiableList(executed);
+        }
+
+        @Override
+        public String toString() {
+            return statements + " statements, " + rows + " rows";
+        }
+    }
+
+    /** En körd sats och parametrarna för dess första rad (parameterindex 1..n). */
+    public record ExecutedStatement(String sql, List<Object> parameters) {
+    }
+}
@@ -0,0 +1,77 @@
+package se.product_service_1.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Läs-/skrivrouting mot en läsreplik. Transaktioner med readOnly = true (inklusive Spring Datas
+ * egna find-metoder) går mot repliken, övriga mot primären.
+ * <p>
+ * Valet görs av LazyConnectionDataSourceProxy, som hämtar den fysiska anslutningen först vid
+ * första satsen, när transaktionens readOnly-flagga redan är satt. Båda poolerna är egna
+ * Hikari-beans så att deras anslutningsmetrik (pool="primary"/"replica") syns var för sig.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "datasource.replica", name = "enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties,
+                                              @Value("${datasource.replica.url}") String url,
+                                              @Value("${datasource.replica.username}") String username,
+                                              @Value("${datasource.replica.password}") String password) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        dataSource.setPoolName("replica");
+        // Skydd mot att en skrivning av misstag hamnar på repliken
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica) {
+        LazyConnectionDataSourceProxy routing = new LazyConnectionDataSourceProxy(new ReadRouting.PrimaryDataSource(primary));
+        routing.setReadOnlyDataSource(new ReadRouting.ReplicaDataSource(replica, primary));
+        return routing;
+    }
+
+    @Bean
+    public FilterRegistrationBean<ReadRoutingFilter> readRoutingFilter(
+            @Value("${datasource.replica.read-your-writes-window:PT5S}") Duration readYourWritesWindow,
+            @Value("${datasource.replica.read-your-writes-max-users:100000}") long maxUsers) {
+        FilterRegistrationBean<ReadRoutingFilter> registration =
+                new FilterRegistrationBean<>(new ReadRoutingFilter(readYourWritesWindow, maxUsers));
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 1);
+        return registration;
+    }
+}
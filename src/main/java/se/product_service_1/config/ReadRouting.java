@@ -0,0 +1,122 @@
+package se.product_service_1.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.function.Supplier;
+
+/**
+ * Trådbundet läge för läs-/skrivroutingen i ReadReplicaConfig. Läsande transaktioner går mot
+ * repliken, utom när tråden är fäst vid primären: efter en skrivning i samma request, när
+ * användaren nyligen skrivit (se ReadRoutingFilter) eller inuti {@link #onPrimary}.
+ * <p>
+ * Utan replik är allt här no-op; då finns bara en databas att läsa från.
+ */
+public final class ReadRouting {
+
+    private static final ThreadLocal<State> STATE = new ThreadLocal<>();
+
+    private ReadRouting() {
+    }
+
+    /**
+     * Startar routingläget för en request.
+     */
+    static void begin(boolean pinnedToPrimary) {
+        State state = new State();
+        state.pinned = pinnedToPrimary;
+        STATE.set(state);
+    }
+
+    /**
+     * Avslutar requestens läge och returnerar om den använde primären för skrivning.
+     */
+    static boolean end() {
+        State state = STATE.get();
+        STATE.remove();
+        return state != null && state.wrote;
+    }
+
+    /**
+     * Kör action med alla läsningar mot primären. Används av sådant som inte tål replikeringsfördröjning,
+     * t.ex. cacheladdning som annars skulle cacha gammal data under en ny revision.
+     */
+    public static <T> T onPrimary(Supplier<T> action) {
+        State state = STATE.get();
+        if (state == null) {
+            state = new State();
+            STATE.set(state);
+            try {
+                state.pinned = true;
+                return action.get();
+            } finally {
+                STATE.remove();
+            }
+        }
+        boolean previous = state.pinned;
+        state.pinned = true;
+        try {
+            return action.get();
+        } finally {
+            state.pinned = previous;
+        }
+    }
+
+    static boolean isPinnedToPrimary() {
+        State state = STATE.get();
+        return state != null && state.pinned;
+    }
+
+    /**
+     * En anslutning för skrivning har tagits från primären; resten av requesten läser därifrån
+     * så att den ser sina egna skrivningar.
+     */
+    static void recordPrimaryWrite() {
+        State state = STATE.get();
+        if (state != null) {
+            state.wrote = true;
+            state.pinned = true;
+        }
+    }
+
+    private static final class State {
+        boolean pinned;
+        boolean wrote;
+    }
+
+    /**
+     * Primären som mål för skrivande anslutningar.
+     */
+    static final class PrimaryDataSource extends DelegatingDataSource {
+
+        PrimaryDataSource(DataSource primary) {
+            super(primary);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            recordPrimaryWrite();
+            return super.getConnection();
+        }
+    }
+
+    /**
+     * Repliken som mål för läsande anslutningar, eller primären när tråden är fäst vid den.
+     */
+    static final class ReplicaDataSource extends DelegatingDataSource {
+
+        private final DataSource primary;
+
+        ReplicaDataSource(DataSource replica, DataSource primary) {
+            super(replica);
+            this.primary = primary;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return isPinnedToPrimary() ? primary.getConnection() : super.getConnection();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package se.product_service_1.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Read-your-writes per användare: efter en request som skrivit till primären läser samma
+ * användare (JWT-subject) från primären under ett fönster som täcker replikeringsfördröjningen.
+ * Måste ligga efter säkerhetsfiltren så att användaren är känd.
+ */
+public class ReadRoutingFilter extends OncePerRequestFilter {
+
+    private final Cache<String, Boolean> recentWriters;
+
+    public ReadRoutingFilter(Duration readYourWritesWindow, long maxUsers) {
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(readYourWritesWindow)
+                .maximumSize(maxUsers)
+                .build();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String subject = currentSubject();
+        ReadRouting.begin(subject != null && recentWriters.getIfPresent(subject) != null);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (ReadRouting.end() && subject != null) {
+                recentWriters.put(subject, Boolean.TRUE);
+            }
+        }
+    }
+
+    private static String currentSubject() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.isAuthenticated() ? authentication.getName() : null;
+    }
+}
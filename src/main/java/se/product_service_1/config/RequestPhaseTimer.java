@@ -0,0 +1,124 @@
+package se.product_service_1.config;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Tidsfaser för en samplad request, bundna till tråden. Faserna markeras av
+ * ServerTimingFilter, ServerTimingConfig (interceptor och repository-lyssnare) och
+ * ServerTimingResponseBodyAdvice. För requests som inte samplas finns ingen timer och
+ * varje markering är en ThreadLocal-läsning.
+ */
+public final class RequestPhaseTimer {
+
+    public enum Phase {
+        SECURITY("auth", "Security filters"),
+        REPOSITORY("db", "Repository calls"),
+        HANDLER("app", "Response building"),
+        SERIALIZATION("ser", "Serialization"),
+        TOTAL("total", "Total");
+
+        private final String metricName;
+        private final String description;
+
+        Phase(String metricName, String description) {
+            this.metricName = metricName;
+            this.description = description;
+        }
+
+        public String getMetricName() {
+            return metricName;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    private static final ThreadLocal<RequestPhaseTimer> CURRENT = new ThreadLocal<>();
+
+    private final long start = System.nanoTime();
+    private long handlerStart;
+    private long bodyStart;
+    private long bodyEnd;
+    private long end;
+    private long repositoryNanos;
+
+    private RequestPhaseTimer() {
+    }
+
+    static RequestPhaseTimer start() {
+        RequestPhaseTimer timer = new RequestPhaseTimer();
+        CURRENT.set(timer);
+        return timer;
+    }
+
+    static RequestPhaseTimer current() {
+        return CURRENT.get();
+    }
+
+    void stop() {
+        end = System.nanoTime();
+        CURRENT.remove();
+    }
+
+    void markHandlerStart() {
+        if (handlerStart == 0) {
+            handlerStart = System.nanoTime();
+        }
+    }
+
+    void markBodyStart() {
+        if (bodyStart == 0) {
+            bodyStart = System.nanoTime();
+        }
+    }
+
+    void markBodyEnd() {
+        if (bodyStart != 0 && bodyEnd == 0) {
+            bodyEnd = System.nanoTime();
+        }
+    }
+
+    void addRepositoryTime(long nanos) {
+        repositoryNanos += nanos;
+    }
+
+    /**
+     * Uppmätta faser i nanosekunder. Faser som ännu inte avslutats (t.ex. serialisering
+     * när headern skrivs) är utelämnade.
+     */
+    Map<Phase, Long> phases() {
+        Map<Phase, Long> phases = new EnumMap<>(Phase.class);
+        if (handlerStart != 0) {
+            phases.put(Phase.SECURITY, handlerStart - start);
+        }
+        phases.put(Phase.REPOSITORY, repositoryNanos);
+        if (handlerStart != 0 && bodyStart != 0) {
+            // Repositoryanropen görs inifrån handlern; app är resten av handlerns tid
+            phases.put(Phase.HANDLER, Math.max(0, bodyStart - handlerStart - repositoryNanos));
+        }
+        if (bodyEnd != 0) {
+            phases.put(Phase.SERIALIZATION, bodyEnd - bodyStart);
+        }
+        if (end != 0) {
+            phases.put(Phase.TOTAL, end - start);
+        }
+        return phases;
+    }
+
+    /** Värdet för en Server-Timing-header, t.ex. {@code auth;dur=0.8;desc="Security filters"}. */
+    static String toHeaderValue(Map<Phase, Long> phases) {
+        StringBuilder value = new StringBuilder();
+        phases.forEach((phase, nanos) -> {
+            if (!value.isEmpty()) {
+                value.append(", ");
+            }
+            value.append(phase.getMetricName())
+                    .append(";dur=").append(String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0))
+                    .append(";desc=\"").append(phase.getDescription()).append('"');
+        });
+        return value.toString();
+    }
+}
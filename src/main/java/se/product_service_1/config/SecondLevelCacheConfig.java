@@ -0,0 +1,35 @@
+package se.product_service_1.config;
+
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.UUID;
+
+/**
+ * CacheManager för Hibernates andra nivås cache (Category och Tag, se application.properties).
+ * <p>
+ * JCache-providerns standard-CacheManager delas av hela JVM:en, så två applikationskontexter
+ * mot olika databaser (testerna, en devtools-omstart) skulle dela cachade entiteter. Varje
+ * kontext får därför en egen CacheManager under en egen URI. Caffeine läser regionernas
+ * konfiguration ur application.conf oavsett URI.
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager() {
+        return Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("product-service:" + UUID.randomUUID()), getClass().getClassLoader());
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheManagerCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+}
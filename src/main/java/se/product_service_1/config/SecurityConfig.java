@@ -1,6 +1,8 @@
 package se.product_service_1.config;
 
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -8,6 +10,7 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.web.SecurityFilterChain;
+import java.time.Duration;
 import java.util.Base64;
 import javax.crypto.SecretKey;
 
@@ -15,7 +18,9 @@ import javax.crypto.SecretKey;
 @EnableMethodSecurity
 public class SecurityConfig {
 
-    private final String jwtSecret = System.getenv("JWT_SECRET"); // or inject via @Value("${JWT_SECRET}")
+    // Läses via Spring så att miljövariabeln kan ersättas med en property i tester och benchmarks
+    @Value("${JWT_SECRET}")
+    private String jwtSecret;
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
@@ -23,6 +28,8 @@ public class SecurityConfig {
                 .csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/swagger-ui/**", "/v3/api-docs/**").permitAll()
+                        // Bara hälsan är öppen; metriken visar interna adresser, cachar och pooler
+                        .requestMatchers("/actuator/health/**").permitAll()
                         .anyRequest().authenticated()
                 )
                 .oauth2ResourceServer(oauth2 -> oauth2
@@ -32,10 +39,23 @@ public class SecurityConfig {
         return http.build();
     }
 
+    @Value("${security.jwt-cache.enabled:true}")
+    private boolean jwtCacheEnabled;
+
+    @Value("${security.jwt-cache.max-entries:10000}")
+    private long jwtCacheMaxEntries;
+
+    @Value("${security.jwt-cache.max-ttl:PT10M}")
+    private Duration jwtCacheMaxTtl;
+
     @Bean
-    public JwtDecoder jwtDecoder() {
+    public JwtDecoder jwtDecoder(MeterRegistry meterRegistry) {
         byte[] keyBytes = Base64.getDecoder().decode(jwtSecret);
         SecretKey secretKey = Keys.hmacShaKeyFor(keyBytes);
-        return NimbusJwtDecoder.withSecretKey(secretKey).build();
+        JwtDecoder decoder = NimbusJwtDecoder.withSecretKey(secretKey).build();
+        if (!jwtCacheEnabled) {
+            return decoder;
+        }
+        return new CachingJwtDecoder(decoder, jwtCacheMaxEntries, jwtCacheMaxTtl, meterRegistry);
     }
 }
@@ -0,0 +1,54 @@
+package se.product_service_1.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.data.repository.core.support.RepositoryMethodInvocationListener;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kopplar in RequestPhaseTimer: filtret (samplingen) och en lyssnare på alla Spring
+ * Data-repositories. Handlerns faser markeras av ServerTimingInterceptor och
+ * ServerTimingResponseBodyAdvice.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "server-timing", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ServerTimingConfig {
+
+    @Bean
+    public FilterRegistrationBean<ServerTimingFilter> serverTimingFilter(
+            MeterRegistry meterRegistry,
+            @Value("${server-timing.sample-rate:0.05}") double sampleRate) {
+        FilterRegistrationBean<ServerTimingFilter> registration =
+                new FilterRegistrationBean<>(new ServerTimingFilter(meterRegistry, sampleRate));
+        // Direkt efter QueryCountFilter och före säkerhetsfiltren, som räknas till auth-fasen
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registration;
+    }
+
+    @Bean
+    public static BeanPostProcessor repositoryPhaseTimingPostProcessor() {
+        RepositoryMethodInvocationListener listener = invocation -> {
+            RequestPhaseTimer timer = RequestPhaseTimer.current();
+            if (timer != null) {
+                timer.addRepositoryTime(invocation.getDuration(TimeUnit.NANOSECONDS));
+            }
+        };
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addInvocationListener(listener));
+                }
+                return bean;
+            }
+        };
+    }
+}
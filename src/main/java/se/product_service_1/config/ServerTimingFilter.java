@@ -0,0 +1,88 @@
+package se.product_service_1.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startar RequestPhaseTimer för en andel av alla requests och registrerar faserna som
+ * histogram (http.server.phase). Faserna fram till svarskroppen skickas i
+ * Server-Timing-headern; serialisering och total tid skickas som trailer när klienten
+ * tar emot trailers (TE: trailers) och svaret är chunkat.
+ */
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    public static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    private final MeterRegistry meterRegistry;
+    private final double sampleRate;
+
+    public ServerTimingFilter(MeterRegistry meterRegistry, double sampleRate) {
+        this.meterRegistry = meterRegistry;
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (sampleRate <= 0 || (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        RequestPhaseTimer timer = RequestPhaseTimer.start();
+        offerTrailer(response, timer);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            timer.stop();
+            Map<RequestPhaseTimer.Phase, Long> phases = timer.phases();
+            if (!response.isCommitted() && !response.containsHeader(SERVER_TIMING_HEADER)) {
+                // Svar utan kropp (304, fel) har inte passerat ResponseBodyAdvice
+                response.setHeader(SERVER_TIMING_HEADER, RequestPhaseTimer.toHeaderValue(phases));
+            }
+            record(request, phases);
+        }
+    }
+
+    private void offerTrailer(HttpServletResponse response, RequestPhaseTimer timer) {
+        try {
+            response.setTrailerFields(() -> {
+                Map<RequestPhaseTimer.Phase, Long> phases = timer.phases();
+                if (!phases.containsKey(RequestPhaseTimer.Phase.SERIALIZATION)) {
+                    // Ingen kropp serialiserades; allt står redan i headern
+                    return Map.of();
+                }
+                phases.keySet().retainAll(EnumSet.of(
+                        RequestPhaseTimer.Phase.SERIALIZATION, RequestPhaseTimer.Phase.TOTAL));
+                return Map.of(SERVER_TIMING_HEADER, RequestPhaseTimer.toHeaderValue(phases));
+            });
+        } catch (IllegalStateException ex) {
+            // Protokollet eller klienten stödjer inte trailers; headern räcker
+        }
+    }
+
+    private void record(HttpServletRequest request, Map<RequestPhaseTimer.Phase, Long> phases) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        phases.forEach((phase, nanos) -> Timer.builder("http.server.phase")
+                .description("Sampled time per request phase")
+                .tag("phase", phase.getMetricName())
+                .tag("uri", uri)
+                .tag("method", request.getMethod())
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS));
+    }
+}
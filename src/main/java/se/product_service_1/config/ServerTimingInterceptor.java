@@ -0,0 +1,30 @@
+package se.product_service_1.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Markerar när handlern startar (slutet på auth-fasen) och när svaret är skrivet
+ * (slutet på serialiseringen).
+ */
+public class ServerTimingInterceptor implements HandlerInterceptor {
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RequestPhaseTimer timer = RequestPhaseTimer.current();
+        if (timer != null) {
+            timer.markHandlerStart();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        RequestPhaseTimer timer = RequestPhaseTimer.current();
+        if (timer != null) {
+            timer.markBodyEnd();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package se.product_service_1.config;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Markerar att handlern är klar och serialiseringen börjar, och lägger Server-Timing
+ * på svaret innan headrarna skickas.
+ */
+@ControllerAdvice
+public class ServerTimingResponseBodyAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        RequestPhaseTimer timer = RequestPhaseTimer.current();
+        if (timer != null) {
+            timer.markBodyStart();
+            response.getHeaders().set(ServerTimingFilter.SERVER_TIMING_HEADER,
+                    RequestPhaseTimer.toHeaderValue(timer.phases()));
+        }
+        return body;
+    }
+}
@@ -0,0 +1,48 @@
+package se.product_service_1.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import java.util.function.Supplier;
+
+/**
+ * Trådbunden shard för ShardingConfig. Anslutningar hämtas från den shard som är satt när
+ * transaktionens första sats körs (datakällan ligger bakom en LazyConnectionDataSourceProxy);
+ * utan satt shard används hemmashard 0.
+ * <p>
+ * Utan sharding är allt här no-op; då finns bara en databas.
+ */
+public final class ShardRouting {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardRouting() {
+    }
+
+    /**
+     * Kör action med alla nya anslutningar mot shard. Kan nästlas; föregående shard återställs.
+     */
+    public static <T> T onShard(int shard, Supplier<T> action) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Väljer shardens pool för varje ny anslutning.
+     */
+    static final class ShardDataSource extends AbstractRoutingDataSource {
+
+        @Override
+        protected Object determineCurrentLookupKey() {
+            return CURRENT.get();
+        }
+    }
+}
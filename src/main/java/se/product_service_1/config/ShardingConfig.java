@@ -0,0 +1,180 @@
+package se.product_service_1.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Horisontell sharding av produkttabellerna. Hemmasharden (shard 0) är den vanliga
+ * spring.datasource; catalog.sharding.urls lägger till shard 1..N-1.
+ * <p>
+ * products, product_tags, product_images och product_listings delas upp på produkt-ID: shard k
+ * äger ID-intervallet [k * id-range-size + 1, (k + 1) * id-range-size], vilket sätts upp genom att
+ * shardens identitetskolumner startas om i sitt intervall. categories och tags finns i alla shards
+ * med samma ID:n; de skapas på hemmasharden och kopieras ut (se ShardRouter).
+ * <p>
+ * Alla shards migreras av Flyway vid start. Valet av shard görs av ShardRouting bakom en
+ * LazyConnectionDataSourceProxy, så att det räcker att shard är satt när första satsen körs.
+ * <p>
+ * Kan inte kombineras med läsrepliken (ReadReplicaConfig); är båda påslagna stoppas starten.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "catalog.sharding", name = "enabled", havingValue = "true")
+public class ShardingConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardingConfig.class);
+
+    // Tabeller vars ID:n ska vara globalt unika: produkt-ID:t är shardnyckeln och bild-ID:t
+    // används som nyckel i bildcacharna
+    private static final List<String> RANGED_TABLES = List.of("products", "product_images");
+
+    public ShardingConfig(@Value("${datasource.replica.enabled:false}") boolean replicaEnabled) {
+        // Båda registrerar en @Primary dataSource; med bean-överskrivning påslagen skulle en av dem
+        // annars tyst försvinna beroende på ordningen
+        if (replicaEnabled) {
+            throw new IllegalStateException(
+                    "catalog.sharding.enabled and datasource.replica.enabled cannot both be true");
+        }
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource homeShardDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("shard-0");
+        return dataSource;
+    }
+
+    @Bean
+    public ShardDataSources shardDataSources(@Qualifier("homeShardDataSource") DataSource home,
+                                             DataSourceProperties properties,
+                                             MeterRegistry meterRegistry,
+                                             AutowireCapableBeanFactory beanFactory,
+                                             @Value("${catalog.sharding.urls}") List<String> urls,
+                                             @Value("${catalog.sharding.username}") String username,
+                                             @Value("${catalog.sharding.password}") String password,
+                                             @Value("${catalog.sharding.id-range-size}") long idRangeSize,
+                                             @Value("${catalog.sharding.hikari.maximum-pool-size:10}") int maxPoolSize,
+                                             @Value("${catalog.sharding.hikari.connection-timeout:30000}") long connectionTimeout,
+                                             @Value("${spring.flyway.locations:classpath:db/migration}") String[] locations) {
+        List<DataSource> shards = new ArrayList<>();
+        List<HikariDataSource> pools = new ArrayList<>();
+        shards.add(home);
+        for (String url : urls) {
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(url)
+                    .username(username)
+                    .password(password)
+                    .build();
+            dataSource.setPoolName("shard-" + shards.size());
+            dataSource.setMaximumPoolSize(maxPoolSize);
+            dataSource.setConnectionTimeout(connectionTimeout);
+            dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            pools.add(dataSource);
+        }
+
+        for (HikariDataSource pool : pools) {
+            int shard = shards.size();
+            // Hemmasharden migreras av Spring Boots Flyway, via routingen nedan
+            Flyway.configure()
+                    .dataSource(pool)
+                    .locations(locations)
+                    .baselineOnMigrate(true)
+                    .baselineVersion("1")
+                    .load()
+                    .migrate();
+            startIdRange(new JdbcTemplate(pool), shard, idRangeSize);
+            // Poolerna är inga beans; BeanPostProcessors för DataSource (t.ex. SQL-räkningen i
+            // QueryCountConfig) appliceras ändå, som på hemmasharden
+            shards.add((DataSource) beanFactory.initializeBean(pool, "shard" + shard + "DataSource"));
+        }
+        log.info("Sharding aktiv: {} shards, ID-intervall {}", shards.size(), idRangeSize);
+        return new ShardDataSources(shards, pools, idRangeSize);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardDataSources shardDataSources) {
+        Map<Object, Object> targets = new HashMap<>();
+        for (int shard = 0; shard < shardDataSources.count(); shard++) {
+            targets.put(shard, shardDataSources.get(shard));
+        }
+        ShardRouting.ShardDataSource routing = new ShardRouting.ShardDataSource();
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(shardDataSources.get(0));
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    /**
+     * Flyttar shardens identitetskolumner till början av dess intervall. Körs bara på en
+     * shard som ännu inte har rader i intervallet, så en omstart lämnar sekvenserna orörda.
+     */
+    private static void startIdRange(JdbcTemplate jdbcTemplate, int shard, long idRangeSize) {
+        long start = shard * idRangeSize + 1;
+        for (String table : RANGED_TABLES) {
+            Long maxId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from " + table, Long.class);
+            if (maxId != null && maxId < start) {
+                jdbcTemplate.execute("alter table " + table + " alter column id restart with " + start);
+            }
+        }
+    }
+
+    /**
+     * Poolerna per shard, index = shardnummer. Stänger shard 1..N-1 vid nedstängning; hemmasharden
+     * är en egen bean.
+     */
+    public static final class ShardDataSources implements AutoCloseable {
+
+        private final List<DataSource> shards;
+        private final List<HikariDataSource> pools;
+        private final long idRangeSize;
+
+        ShardDataSources(List<DataSource> shards, List<HikariDataSource> pools, long idRangeSize) {
+            this.shards = List.copyOf(shards);
+            this.pools = List.copyOf(pools);
+            this.idRangeSize = idRangeSize;
+        }
+
+        public int count() {
+            return shards.size();
+        }
+
+        public DataSource get(int shard) {
+            return shards.get(shard);
+        }
+
+        public long idRangeSize() {
+            return idRangeSize;
+        }
+
+        @Override
+        public void close() {
+            // De råa poolerna; shards kan innehålla proxar runt dem
+            pools.forEach(HikariDataSource::close);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package se.product_service_1.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // No-op för requests som inte samplats av ServerTimingFilter
+        registry.addInterceptor(new ServerTimingInterceptor());
+    }
+}
@@ -0,0 +1,45 @@
+package se.product_service_1.controller;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import se.product_service_1.dto.CachedCatalogResponse;
+
+/**
+ * Bygger svar från CatalogResponseCache: gzip-varianten när klienten accepterar den,
+ * annars rå JSON, och 304 utan body när klientens ETag fortfarande gäller.
+ */
+final class CatalogResponses {
+
+    private CatalogResponses() {
+    }
+
+    static ResponseEntity<byte[]> of(CachedCatalogResponse cached, String ifNoneMatch, String acceptEncoding) {
+        boolean gzip = cached.getGzip() != null && acceptEncoding != null && acceptEncoding.contains("gzip");
+        String eTag = gzip ? cached.getGzipETag() : cached.getETag();
+
+        // Vanligaste revalideringen besvaras här; övriga varianter av If-None-Match
+        // hanteras av Spring utifrån ETag-headern nedan
+        if (eTag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(eTag)
+                    .cacheControl(CacheControl.noCache())
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+
+        byte[] body = gzip ? cached.getGzip() : cached.getJson();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .contentLength(body.length)
+                .eTag(eTag)
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+}
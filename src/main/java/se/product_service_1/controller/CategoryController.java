@@ -1,13 +1,21 @@
 package se.product_service_1.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import lombok.AllArgsConstructor;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import se.product_service_1.dto.CachedCatalogResponse;
 import se.product_service_1.dto.CategoryRequest;
 import se.product_service_1.dto.CategoryResponse;
+import se.product_service_1.dto.CategoryStatsResponse;
 import se.product_service_1.model.Category;
+import se.product_service_1.service.CatalogResponseCache;
 import se.product_service_1.service.CategoryService;
 
 import java.util.List;
@@ -18,11 +26,27 @@ import java.util.List;
 public class CategoryController {
 
     private CategoryService categoryService;
+    private CatalogResponseCache catalogResponseCache;
+
     @Operation(summary = "Get all categories", description = "Returns all categories")
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = "application/json",
+            array = @ArraySchema(schema = @Schema(implementation = Category.class))))
     @GetMapping
-    public ResponseEntity<List<Category>> getAllCategories() {
-        List<Category> categories = categoryService.getAllCategories();
-        return ResponseEntity.ok(categories);
+    public ResponseEntity<byte[]> getAllCategories(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        CachedCatalogResponse cached = catalogResponseCache.get("category", categoryService::getAllCategories);
+        return CatalogResponses.of(cached, ifNoneMatch, acceptEncoding);
+    }
+    @Operation(summary = "Get category statistics", description = "Product count, total stock, stock value and min/max price per category")
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = "application/json",
+            array = @ArraySchema(schema = @Schema(implementation = CategoryStatsResponse.class))))
+    @GetMapping("/stats")
+    public ResponseEntity<byte[]> getCategoryStats(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        CachedCatalogResponse cached = catalogResponseCache.get("category/stats", categoryService::getCategoryStats);
+        return CatalogResponses.of(cached, ifNoneMatch, acceptEncoding);
     }
     @Operation(summary = "Get category by name", description = "Search for category by name")
     @GetMapping("/name/{name}")
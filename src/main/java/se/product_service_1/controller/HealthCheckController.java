@@ -1,17 +1,38 @@
 package se.product_service_1.controller;
 
+import lombok.AllArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import se.product_service_1.dto.ReconciliationReport;
+import se.product_service_1.service.HotImageCache;
+import se.product_service_1.service.UploadReconciler;
+
+import java.util.Map;
 
 @RestController
 @RequestMapping("/health")
+@AllArgsConstructor
 public class HealthCheckController {
 
+    private final HotImageCache hotImageCache;
+    private final UploadReconciler uploadReconciler;
+
     @GetMapping
     public ResponseEntity<String> healthCheck() {
         return ResponseEntity.status(HttpStatus.OK).body("Application is running");
     }
+
+    @GetMapping("/image-cache")
+    public ResponseEntity<Map<String, Object>> imageCacheStats() {
+        return ResponseEntity.ok(hotImageCache.stats());
+    }
+
+    @GetMapping("/upload-reconciler")
+    public ResponseEntity<ReconciliationReport> uploadReconcilerReport() {
+        ReconciliationReport report = uploadReconciler.getLastReport();
+        return report != null ? ResponseEntity.ok(report) : ResponseEntity.noContent().build();
+    }
 }
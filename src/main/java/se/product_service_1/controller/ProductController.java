@@ -1,18 +1,25 @@
 package se.product_service_1.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import se.product_service_1.dto.*;
 import se.product_service_1.model.Category;
 import se.product_service_1.model.Product;
+import se.product_service_1.service.CatalogResponseCache;
 import se.product_service_1.service.CategoryService;
 import se.product_service_1.service.ProductService;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestController
@@ -21,29 +28,33 @@ import java.util.stream.Collectors;
 public class ProductController {
     private ProductService productService;
     private CategoryService categoryService;
+    private CatalogResponseCache catalogResponseCache;
 
     @Operation(summary = "Get all products", description = "Returns all products")
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = "application/json",
+            array = @ArraySchema(schema = @Schema(implementation = ProductResponse.class))))
     @GetMapping
-    public ResponseEntity<List<ProductResponse>> getAllProducts() {
-        List<Product> products = productService.getAllProducts();
-        List<ProductResponse> responseList = new ArrayList<>();
-        for (Product product : products) {
-            ProductResponse productResponse = buildProductResponse(product);
-            responseList.add(productResponse);
-        }
-        return ResponseEntity.ok(responseList);
+    public ResponseEntity<byte[]> getAllProducts(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        CachedCatalogResponse cached = catalogResponseCache.get("product",
+                productService::getAllProductResponses);
+        return CatalogResponses.of(cached, ifNoneMatch, acceptEncoding);
     }
     @Operation(summary = "Get all products from a category", description = "Returns all products from a specific category")
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = "application/json",
+            array = @ArraySchema(schema = @Schema(implementation = ProductResponse.class))))
     @GetMapping("/{productCategory}")
-    public ResponseEntity<List<ProductResponse>> getProductsByCategory(@PathVariable String productCategory) {
-        Category category = categoryService.getCategoryByName(productCategory);
-        List<Product> products = productService.getProductsByCategory(category.getName());
-        List<ProductResponse> responseList = new ArrayList<>();
-        for (Product product : products) {
-            ProductResponse productResponse = buildProductResponse(product);
-            responseList.add(productResponse);
-        }
-        return ResponseEntity.ok(responseList);
+    public ResponseEntity<byte[]> getProductsByCategory(
+            @PathVariable String productCategory,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        // Okända kategorier kastar i loadern och cachas därför inte
+        CachedCatalogResponse cached = catalogResponseCache.get("product/" + productCategory, () -> {
+            Category category = categoryService.getCategoryByName(productCategory);
+            return productService.getProductResponsesByCategory(category.getName());
+        });
+        return CatalogResponses.of(cached, ifNoneMatch, acceptEncoding);
     }
     @Operation(summary = "Add a new product", description = "Saves a new product")
     @PostMapping
@@ -97,53 +108,31 @@ public class ProductController {
     @PostMapping("/inventoryManager")
     public ResponseEntity<List<ProductResponse>> updateStockQuantity(@RequestBody InventoryManagementRequest inventoryManagementRequest) {
         List<Product> productList = productService.updateInventoryChange(inventoryManagementRequest);
-        List<ProductResponse> responseList = new ArrayList<>(productList.size());
-
-        for (Product product : productList) {
-            ProductResponse productResponse = buildProductResponse(product);
-            responseList.add(productResponse);
-        }
-
-        return ResponseEntity.ok(responseList);
+        return ResponseEntity.ok(buildProductResponses(productList));
     }
 
 
     // === NYA ENDPOINTS FÖR TAGG-FUNKTIONALITET ===
 
+    @Operation(summary = "Search products", description = "Combine tags (any/all), category, tag pattern, price range and in-stock-only; optionally sorted and paginated")
     @PostMapping("/search")
     public ResponseEntity<List<ProductResponse>> searchProducts(@RequestBody ProductSearchRequest searchRequest) {
-        List<Product> products = productService.searchProducts(searchRequest);
-        List<ProductResponse> responseList = products.stream()
-                .map(this::buildProductResponse)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(responseList);
+        return ResponseEntity.ok(productService.searchProducts(searchRequest));
     }
     @Operation(summary = "Hämta alla produkter för en tag", description = "Ger en lista på alla produkter med den tag man söker efter")
     @GetMapping("/search/tags")
     public ResponseEntity<List<ProductResponse>> searchProductsByTags(@RequestParam List<String> tags) {
-        List<Product> products = productService.searchProductsByTags(tags);
-        List<ProductResponse> responseList = products.stream()
-                .map(this::buildProductResponse)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(responseList);
+        return ResponseEntity.ok(productService.searchProductsByTags(tags));
     }
 
     @GetMapping("/search/tags/all")
     public ResponseEntity<List<ProductResponse>> searchProductsByAllTags(@RequestParam List<String> tags) {
-        List<Product> products = productService.searchProductsByAllTags(tags);
-        List<ProductResponse> responseList = products.stream()
-                .map(this::buildProductResponse)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(responseList);
+        return ResponseEntity.ok(productService.searchProductsByAllTags(tags));
     }
 
     @GetMapping("/search/tag-pattern")
     public ResponseEntity<List<ProductResponse>> searchProductsByTagPattern(@RequestParam String pattern) {
-        List<Product> products = productService.searchProductsByTagPattern(pattern);
-        List<ProductResponse> responseList = products.stream()
-                .map(this::buildProductResponse)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(responseList);
+        return ResponseEntity.ok(productService.searchProductsByTagPattern(pattern));
     }
     @Operation(summary = "Add a tag to product", description = "Add a tag to a specified product id")
     @PostMapping("/{productId}/tags")
@@ -167,7 +156,21 @@ public class ProductController {
     private ProductResponse buildProductResponse(Product product) {
         // Hämta taggar för produkten via ProductService
         List<String> tagNames = productService.getTagNamesForProduct(product.getId());
+        return buildProductResponse(product, tagNames);
+    }
+
+    private List<ProductResponse> buildProductResponses(List<Product> products) {
+        // Taggarna för hela listan hämtas i en fråga i stället för en per produkt
+        Map<Long, List<String>> tagNames = productService.getTagNamesForProducts(
+                products.stream().map(Product::getId).collect(Collectors.toSet()));
+        List<ProductResponse> responseList = new ArrayList<>(products.size());
+        for (Product product : products) {
+            responseList.add(buildProductResponse(product, tagNames.getOrDefault(product.getId(), new ArrayList<>())));
+        }
+        return responseList;
+    }
 
+    private ProductResponse buildProductResponse(Product product, List<String> tagNames) {
         return ProductResponse.builder()
                 .id(product.getId())
                 .categoryName(product.getCategory() != null ? product.getCategory().getName() : "Unknown")
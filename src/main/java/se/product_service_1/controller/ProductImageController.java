@@ -6,7 +6,8 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import lombok.AllArgsConstructor;
 import lombok.Data;
-import org.springframework.core.io.Resource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -15,17 +16,24 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
+import se.product_service_1.dto.ProductImageMetadata;
 import se.product_service_1.dto.ProductImageResponse;
 import se.product_service_1.exception.BadRequestException;
 import se.product_service_1.model.ProductImage;
 import se.product_service_1.service.FileStorageService;
 
 import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -36,6 +44,8 @@ import java.util.stream.Collectors;
 @AllArgsConstructor
 public class ProductImageController {
 
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable();
+
     private final FileStorageService fileStorageService;
 
     // Användning av @Data för att få getter/setter automatiskt
@@ -58,37 +68,44 @@ public class ProductImageController {
 
         ProductImage productImage = fileStorageService.storeFile(productId, file);
 
-        String downloadUrl = ServletUriComponentsBuilder.fromCurrentContextPath()
-                .path("/product/{productId}/image/{fileName}")
-                .buildAndExpand(productId, productImage.getFileName())
-                .toUriString();
-
-        ProductImageResponse response = ProductImageResponse.builder()
-                .id(productImage.getId())
-                .productId(productImage.getProductId())
-                .fileName(productImage.getFileName())
-                .contentType(productImage.getContentType())
-                .downloadUrl(downloadUrl)
-                .build();
-
+        ProductImageResponse response = buildImageResponse(productImage, downloadUrlPrefix());
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
     @Operation(summary = "Get product image",
-            description = "Get an image for a specific product by filename")
+            description = "Get the latest image for a specific product by filename. "
+                    + "Redirects to the immutable, content-versioned URL when one exists")
     @ApiResponse(responseCode = "200", content = @Content(mediaType = "image/*"))
     @GetMapping("/{productId}/image/{fileName}")
-    public ResponseEntity<Resource> getProductImage(
+    public ResponseEntity<?> getProductImage(
             @PathVariable Long productId,
-            @PathVariable String fileName) {
+            @PathVariable String fileName,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
 
-        Resource resource = fileStorageService.loadFileAsResource(productId, fileName);
-        String contentType = determineContentType(fileName);
+        ProductImageMetadata image = fileStorageService.loadImageMetadata(productId, fileName);
 
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(contentType))
-                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + resource.getFilename() + "\"")
-                .body(resource);
+        if (image.getContentHash() != null) {
+            // Namnadressen kan byta innehåll, så den får inte cachas; den versionerade kan
+            return ResponseEntity.status(HttpStatus.FOUND)
+                    .location(URI.create(downloadUrl(downloadUrlPrefix(), productId, fileName, image.getContentHash())))
+                    .cacheControl(CacheControl.noCache())
+                    .build();
+        }
+        return serveImage(image, CacheControl.noCache(), ifNoneMatch);
+    }
+
+    @Operation(summary = "Get product image by content version",
+            description = "Get a specific version of a product image. The content behind this URL never changes")
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = "image/*"))
+    @GetMapping("/{productId}/image/{contentHash}/{fileName}")
+    public ResponseEntity<?> getVersionedProductImage(
+            @PathVariable Long productId,
+            @PathVariable String contentHash,
+            @PathVariable String fileName,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        ProductImageMetadata image = fileStorageService.loadImageMetadata(productId, fileName, contentHash);
+        return serveImage(image, IMMUTABLE, ifNoneMatch);
     }
 
     @Operation(summary = "List product images",
@@ -96,27 +113,30 @@ public class ProductImageController {
     @GetMapping("/{productId}/images")
     public ResponseEntity<List<ProductImageResponse>> listProductImages(@PathVariable Long productId) {
         List<ProductImage> productImages = fileStorageService.getProductImages(productId);
+        String downloadUrlPrefix = downloadUrlPrefix();
 
         List<ProductImageResponse> responseList = productImages.stream()
-                .map(image -> {
-                    String downloadUrl = ServletUriComponentsBuilder.fromCurrentContextPath()
-                            .path("/product/{productId}/image/{fileName}")
-                            .buildAndExpand(productId, image.getFileName())
-                            .toUriString();
-
-                    return ProductImageResponse.builder()
-                            .id(image.getId())
-                            .productId(image.getProductId())
-                            .fileName(image.getFileName())
-                            .contentType(image.getContentType())
-                            .downloadUrl(downloadUrl)
-                            .build();
-                })
+                .map(image -> buildImageResponse(image, downloadUrlPrefix))
                 .collect(Collectors.toList());
 
         return ResponseEntity.ok(responseList);
     }
 
+    @Operation(summary = "List images for several products",
+            description = "Get all images for the given product ids with one lookup, grouped by product id")
+    @GetMapping("/images/batch")
+    public ResponseEntity<Map<Long, List<ProductImageResponse>>> listImagesForProducts(@RequestParam List<Long> ids) {
+        Map<Long, List<ProductImage>> imagesByProduct = fileStorageService.getProductImages(ids);
+        String downloadUrlPrefix = downloadUrlPrefix();
+
+        Map<Long, List<ProductImageResponse>> response = new LinkedHashMap<>();
+        imagesByProduct.forEach((productId, images) -> response.put(productId, images.stream()
+                .map(image -> buildImageResponse(image, downloadUrlPrefix))
+                .collect(Collectors.toList())));
+
+        return ResponseEntity.ok(response);
+    }
+
     @Operation(summary = "Delete product image",
             description = "Delete an image for a specific product")
     @DeleteMapping("/{productId}/image/{imageId}")
@@ -177,17 +197,52 @@ public class ProductImageController {
         }
     }
 
-    private String determineContentType(String fileName) {
-        if (fileName.toLowerCase().endsWith(".png")) {
-            return "image/png";
-        } else if (fileName.toLowerCase().endsWith(".jpg") || fileName.toLowerCase().endsWith(".jpeg")) {
-            return "image/jpeg";
-        } else if (fileName.toLowerCase().endsWith(".gif")) {
-            return "image/gif";
-        } else if (fileName.toLowerCase().endsWith(".pdf")) {
-            return "application/pdf";
-        } else {
-            return "application/octet-stream";
+    private ResponseEntity<?> serveImage(ProductImageMetadata image, CacheControl cacheControl, String ifNoneMatch) {
+        // Vanligaste revalideringen besvaras här utan att röra bytes; övriga varianter av
+        // If-None-Match hanteras av Spring utifrån ETag-headern nedan
+        if (image.getETag().equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(image.getETag())
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(image.getContentType()))
+                .contentLength(image.getSize())
+                .eTag(image.getETag())
+                .cacheControl(cacheControl)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "inline; filename=\"" + image.getPath().getFileName() + "\"");
+
+        fileStorageService.recordDownload(image);
+        ByteBuffer cachedBytes = fileStorageService.loadCachedImageBytes(image);
+        if (cachedBytes != null) {
+            return response.body(cachedBytes);
         }
+        return response.body(new FileSystemResource(image.getPath()));
+    }
+
+    // Basadressen byggs en gång per förfrågan i stället för en gång per bild
+    private String downloadUrlPrefix() {
+        return ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/product/")
+                .toUriString();
+    }
+
+    private String downloadUrl(String downloadUrlPrefix, Long productId, String fileName, String contentHash) {
+        String version = contentHash != null ? contentHash + "/" : "";
+        return downloadUrlPrefix + productId + "/image/" + version
+                + UriUtils.encodePathSegment(fileName, StandardCharsets.UTF_8);
+    }
+
+    private ProductImageResponse buildImageResponse(ProductImage image, String downloadUrlPrefix) {
+        return ProductImageResponse.builder()
+                .id(image.getId())
+                .productId(image.getProductId())
+                .fileName(image.getFileName())
+                .contentType(image.getContentType())
+                .downloadUrl(downloadUrl(downloadUrlPrefix, image.getProductId(), image.getFileName(), image.getContentHash()))
+                .build();
     }
-}
\ No newline at end of file
+}
@@ -1,18 +1,24 @@
 package se.product_service_1.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import se.product_service_1.dto.CachedCatalogResponse;
 import se.product_service_1.dto.TagRequest;
 import se.product_service_1.dto.TagResponse;
 import se.product_service_1.model.Tag;
 import se.product_service_1.repository.ProductTagRepository;
+import se.product_service_1.service.CatalogResponseCache;
 import se.product_service_1.service.TagService;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/tag")
@@ -21,22 +27,23 @@ public class TagController {
 
     private final TagService tagService;
     private final ProductTagRepository productTagRepository;
+    private final CatalogResponseCache catalogResponseCache;
 
     @Operation(summary = "Get all tags", description = "Get a list of all tags")
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = "application/json",
+            array = @ArraySchema(schema = @Schema(implementation = TagResponse.class))))
     @GetMapping
-    public ResponseEntity<List<TagResponse>> getAllTags() {
-        List<Tag> tags = tagService.getAllTags();
-        List<TagResponse> responses = tags.stream()
-                .map(this::buildTagResponse)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(responses);
+    public ResponseEntity<byte[]> getAllTags(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        CachedCatalogResponse cached = catalogResponseCache.get("tag",
+                tagService::getAllTagResponses);
+        return CatalogResponses.of(cached, ifNoneMatch, acceptEncoding);
     }
     @Operation(summary = "Get a list of products for a specific tag", description = "Get a list of products for a specific tag by name")
     @GetMapping("/name/{name}")
     public ResponseEntity<TagResponse> getTagByName(@PathVariable String name) {
-        Tag tag = tagService.getTagByName(name);
-        TagResponse response = buildTagResponse(tag);
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok(tagService.getTagResponseByName(name));
     }
     @Operation(summary = "Create a tag", description = "Create a tag")
     @PostMapping
@@ -54,22 +61,21 @@ public class TagController {
 
     @GetMapping("/search")
     public ResponseEntity<List<TagResponse>> searchTags(@RequestParam String searchTerm) {
-        List<Tag> tags = tagService.searchTagsByName(searchTerm);
-        List<TagResponse> responses = tags.stream()
-                .map(this::buildTagResponse)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(responses);
+        return ResponseEntity.ok(tagService.searchTagResponses(searchTerm));
     }
 
     private TagResponse buildTagResponse(Tag tag) {
         // Räkna produkter som använder denna tagg via ProductTagRepository
-        int productCount = productTagRepository.findByTagId(tag.getId()).size();
+        long productCount = productTagRepository.countByTagId(tag.getId());
+        return buildTagResponse(tag, productCount);
+    }
 
+    private TagResponse buildTagResponse(Tag tag, long productCount) {
         return TagResponse.builder()
                 .id(tag.getId())
                 .name(tag.getName())
                 .description(tag.getDescription())
-                .productCount(productCount)
+                .productCount((int) productCount)
                 .build();
     }
 }
\ No newline at end of file
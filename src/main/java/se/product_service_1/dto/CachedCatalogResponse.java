@@ -0,0 +1,17 @@
+package se.product_service_1.dto;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Färdigserialiserat svar för en listendpoint i katalogen, giltigt för en katalogrevision.
+ * gzip saknas när komprimeringen inte gav något mindre svar.
+ */
+@Value
+@Builder
+public class CachedCatalogResponse {
+    byte[] json;
+    byte[] gzip;
+    String eTag;
+    String gzipETag;
+}
@@ -0,0 +1,19 @@
+package se.product_service_1.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class CategoryStatsResponse {
+    private String categoryName;
+    private long productCount;
+    private long totalStock;
+    private double stockValue; // Summan av pris * lagersaldo
+    private Double minPrice;   // null för en tom kategori
+    private Double maxPrice;
+}
@@ -0,0 +1,22 @@
+package se.product_service_1.dto;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.nio.file.Path;
+
+/**
+ * Allt som behövs för att servera en produktbild utan att gå mot databasen eller filsystemet.
+ */
+@Value
+@Builder
+public class ProductImageMetadata {
+    Long imageId;
+    Long productId;
+    String fileName;
+    Path path;
+    long size;
+    String contentType;
+    String contentHash;
+    String eTag;
+}
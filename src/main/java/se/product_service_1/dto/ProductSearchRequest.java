@@ -7,6 +7,9 @@ import lombok.NoArgsConstructor;
 
 import java.util.List;
 
+/**
+ * Kriterierna kombineras med AND; ett kriterium som saknas begränsar inte sökningen.
+ */
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -16,4 +19,11 @@ public class ProductSearchRequest {
     private String categoryName;
     private boolean requireAllTags; // true = måste ha alla taggar, false = minst en tagg
     private String searchTerm; // för att söka i tagg-namn
-}
\ No newline at end of file
+    private Double minPrice;
+    private Double maxPrice;
+    private boolean inStockOnly;
+    private String sortBy; // id, name, price eller stockQuantity; standard id
+    private String sortDirection; // asc eller desc; standard asc
+    private Integer page; // nollbaserad; standard 0
+    private Integer size; // utan size returneras hela resultatet
+}
@@ -0,0 +1,18 @@
+package se.product_service_1.dto;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Instant;
+
+@Value
+@Builder
+public class ReconciliationReport {
+    Instant finishedAt;
+    long durationMillis;
+    int recordsScanned;
+    int recordsDeleted;
+    int filesScanned;
+    int filesDeleted;
+    long bytesReclaimed;
+}
@@ -14,4 +14,9 @@ public class TagResponse {
     private String name;
     private String description;
     private int productCount;
+
+    // För konstruktoruttrycken i TagRepository, där COUNT ger en long
+    public TagResponse(Long id, String name, String description, long productCount) {
+        this(id, name, description, (int) productCount);
+    }
 }
\ No newline at end of file
@@ -5,9 +5,12 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products",
+        indexes = @Index(name = "idx_products_category_stats", columnList = "category_id, price, stock_quantity"))
 @Data
 @Builder
 @NoArgsConstructor
@@ -21,7 +24,9 @@ public class Product {
     @Column(nullable = false, unique = true)
     private String name;
 
+    // Kategorin läses ur andra nivåns cache i stället för att joinas in i varje produktladdning
     @ManyToOne(fetch = FetchType.EAGER)
+    @Fetch(FetchMode.SELECT)
     @JoinColumn(name = "category_id", nullable = false)
     private Category category;
 
@@ -7,7 +7,9 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "product_images")
+@Table(name = "product_images", indexes = {
+        @Index(name = "idx_product_images_product_file", columnList = "product_id, file_name, id"),
+        @Index(name = "idx_product_images_file_path", columnList = "file_path")})
 @Data
 @Builder
 @NoArgsConstructor
@@ -29,4 +31,8 @@ public class ProductImage {
 
     @Column(nullable = false)
     private String filePath;
+
+    // SHA-256 (hex) av filinnehållet, används i versionerade nedladdningsadresser
+    @Column(length = 64)
+    private String contentHash;
 }
\ No newline at end of file
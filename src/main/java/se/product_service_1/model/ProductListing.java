@@ -0,0 +1,47 @@
+package se.product_service_1.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.util.List;
+
+/**
+ * Läsmodell för list- och sökendpoints: en rad per produkt med kategorinamn och taggnamn
+ * redan ihopslagna, så att ett svar byggs utan joins. Skrivs av ProductListingWriter i
+ * samma transaktion som ändringen av produkten, kopplingarna eller taggarna.
+ */
+@Entity
+@Table(name = "product_listings",
+        indexes = @Index(name = "idx_product_listings_category", columnList = "category_name, product_id"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductListing {
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(nullable = false)
+    private String name;
+
+    @Column(name = "category_name", nullable = false)
+    private String categoryName;
+
+    @Column(nullable = false)
+    private Double price;
+
+    @Column(nullable = false)
+    private Integer stockQuantity;
+
+    // Taggnamnen i samma ordning som tidigare (tagg-id), packade som en JSON-array
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(nullable = false)
+    private List<String> tagNames;
+}
@@ -7,7 +7,9 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "product_tags")
+@Table(name = "product_tags",
+        uniqueConstraints = @UniqueConstraint(name = "uk_product_tags_product_tag", columnNames = {"product_id", "tag_id"}),
+        indexes = @Index(name = "idx_product_tags_tag_product", columnList = "tag_id, product_id"))
 @Data
 @Builder
 @NoArgsConstructor
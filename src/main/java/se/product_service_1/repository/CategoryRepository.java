@@ -1,11 +1,25 @@
 package se.product_service_1.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import se.product_service_1.dto.CategoryStatsResponse;
 import se.product_service_1.model.Category;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface CategoryRepository extends JpaRepository<Category, Long> {
+    // Resultatet (kategorins ID) ligger i frågecachen, själva kategorin i andra nivåns cache
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Category> findByName(String name);
     void deleteByName(String name);
+
+    // En grupperad fråga för alla kategorier; tomma kategorier kommer med via LEFT JOIN
+    @Query("SELECT new se.product_service_1.dto.CategoryStatsResponse(c.name, COUNT(p.id), " +
+            "COALESCE(SUM(p.stockQuantity), 0L), COALESCE(SUM(p.price * p.stockQuantity), 0.0), MIN(p.price), MAX(p.price)) " +
+            "FROM Category c LEFT JOIN Product p ON p.category = c GROUP BY c.id, c.name ORDER BY c.name")
+    List<CategoryStatsResponse> findStats();
 }
@@ -0,0 +1,26 @@
+package se.product_service_1.repository;
+
+/**
+ * LIKE-mönster av sökord från klienter. %, _ och \ i sökordet matchas som vanliga tecken;
+ * frågorna anger ESCAPE '\'.
+ */
+public final class LikePatterns {
+
+    public static final char ESCAPE = '\\';
+
+    private LikePatterns() {
+    }
+
+    /** Mönster för namn som innehåller term. */
+    public static String containing(String term) {
+        StringBuilder pattern = new StringBuilder(term.length() + 2).append('%');
+        for (int i = 0; i < term.length(); i++) {
+            char c = term.charAt(i);
+            if (c == '%' || c == '_' || c == ESCAPE) {
+                pattern.append(ESCAPE);
+            }
+            pattern.append(c);
+        }
+        return pattern.append('%').toString();
+    }
+}
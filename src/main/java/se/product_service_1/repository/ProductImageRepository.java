@@ -1,13 +1,25 @@
 package se.product_service_1.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import se.product_service_1.model.ProductImage;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface ProductImageRepository extends JpaRepository<ProductImage, Long> {
     List<ProductImage> findByProductId(Long productId);
-    Optional<ProductImage> findByProductIdAndFileName(Long productId, String fileName);
+    List<ProductImage> findByProductIdInOrderByProductIdAscIdAsc(Collection<Long> productIds);
+    // Samma filnamn kan laddas upp flera gånger; den senaste uppladdningen gäller
+    Optional<ProductImage> findFirstByProductIdAndFileNameOrderByIdDesc(Long productId, String fileName);
+    Optional<ProductImage> findFirstByProductIdAndFileNameAndContentHash(Long productId, String fileName, String contentHash);
     void deleteByProductId(Long productId);
+
+    List<ProductImage> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+
+    @Query("SELECT pi.filePath FROM ProductImage pi WHERE pi.filePath IN :filePaths")
+    List<String> findFilePathsIn(@Param("filePaths") Collection<String> filePaths);
 }
\ No newline at end of file
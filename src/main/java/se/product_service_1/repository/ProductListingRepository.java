@@ -0,0 +1,30 @@
+package se.product_service_1.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import se.product_service_1.dto.ProductResponse;
+import se.product_service_1.model.ProductListing;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ProductListingRepository extends JpaRepository<ProductListing, Long>, ProductListingSearch {
+
+    // Svaren byggs direkt i frågan; inga entiteter hamnar i persistenskontexten
+    String RESPONSE = "SELECT new se.product_service_1.dto.ProductResponse(" +
+            "l.productId, l.name, l.categoryName, l.price, l.stockQuantity, l.tagNames) FROM ProductListing l ";
+
+    @Query(RESPONSE + "ORDER BY l.productId")
+    List<ProductResponse> findAllResponses();
+
+    @Query(RESPONSE + "WHERE l.categoryName = :categoryName ORDER BY l.productId")
+    List<ProductResponse> findResponsesByCategoryName(@Param("categoryName") String categoryName);
+
+    @Query(RESPONSE + "WHERE l.productId IN :productIds ORDER BY l.productId")
+    List<ProductResponse> findResponsesByProductIds(@Param("productIds") Collection<Long> productIds);
+
+    // Raderna vars produkt-ID:n ligger i den temporära tabellen query_ids (se IdListQueries)
+    @Query(value = "SELECT l.* FROM product_listings l JOIN query_ids q ON q.id = l.product_id", nativeQuery = true)
+    List<ProductListing> findAllInQueryIds();
+}
@@ -0,0 +1,17 @@
+package se.product_service_1.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import se.product_service_1.dto.ProductResponse;
+import se.product_service_1.model.ProductListing;
+
+import java.util.List;
+
+public interface ProductListingSearch {
+
+    /**
+     * Svaren för läsmodellens rader som uppfyller specification, sorterade och begränsade enligt
+     * pageable, med en fråga. Ingen räknefråga körs.
+     */
+    List<ProductResponse> findResponses(Specification<ProductListing> specification, Pageable pageable);
+}
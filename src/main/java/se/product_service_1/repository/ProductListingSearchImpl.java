@@ -0,0 +1,50 @@
+package se.product_service_1.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import se.product_service_1.dto.ProductResponse;
+import se.product_service_1.model.ProductListing;
+
+import java.util.List;
+
+/**
+ * Samma konstruktoruttryck som ProductListingRepository.RESPONSE, men med villkoren från en
+ * Specification.
+ */
+class ProductListingSearchImpl implements ProductListingSearch {
+
+    private final EntityManager entityManager;
+
+    ProductListingSearchImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<ProductResponse> findResponses(Specification<ProductListing> specification, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductResponse> query = cb.createQuery(ProductResponse.class);
+        Root<ProductListing> listing = query.from(ProductListing.class);
+        query.select(cb.construct(ProductResponse.class,
+                listing.get("productId"), listing.get("name"), listing.get("categoryName"),
+                listing.get("price"), listing.get("stockQuantity"), listing.get("tagNames")));
+        Predicate predicate = specification.toPredicate(listing, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), listing, cb));
+
+        TypedQuery<ProductResponse> typedQuery = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult(Math.toIntExact(pageable.getOffset()));
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+        return typedQuery.getResultList();
+    }
+}
@@ -0,0 +1,82 @@
+package se.product_service_1.repository;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.jpa.domain.Specification;
+import se.product_service_1.model.ProductListing;
+import se.product_service_1.model.ProductTag;
+import se.product_service_1.model.Tag;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Sökkriterier mot läsmodellen. Taggvillkoren är delfrågor mot product_tags och tags, så att
+ * hela sökningen blir en fråga utan att taggarna slås upp i förväg.
+ */
+public final class ProductListingSpecifications {
+
+    private ProductListingSpecifications() {
+    }
+
+    public static Specification<ProductListing> inCategory(String categoryName) {
+        return (listing, query, cb) -> cb.equal(listing.get("categoryName"), categoryName);
+    }
+
+    public static Specification<ProductListing> priceAtLeast(double minPrice) {
+        return (listing, query, cb) -> cb.greaterThanOrEqualTo(listing.get("price"), minPrice);
+    }
+
+    public static Specification<ProductListing> priceAtMost(double maxPrice) {
+        return (listing, query, cb) -> cb.lessThanOrEqualTo(listing.get("price"), maxPrice);
+    }
+
+    public static Specification<ProductListing> inStock() {
+        return (listing, query, cb) -> cb.greaterThan(listing.get("stockQuantity"), 0);
+    }
+
+    /**
+     * Produkten har minst en av taggarna.
+     */
+    public static Specification<ProductListing> hasAnyTag(Collection<String> tagNames) {
+        Set<String> names = Set.copyOf(tagNames);
+        return (listing, query, cb) -> cb.exists(tagSubquery(listing, query, cb,
+                tag -> cb.literal(1L), tag -> tag.get("name").in(names)));
+    }
+
+    /**
+     * Produkten har alla taggarna.
+     */
+    public static Specification<ProductListing> hasAllTags(Collection<String> tagNames) {
+        Set<String> names = Set.copyOf(tagNames);
+        return (listing, query, cb) -> cb.equal(tagSubquery(listing, query, cb,
+                tag -> cb.countDistinct(tag.get("id")), tag -> tag.get("name").in(names)), (long) names.size());
+    }
+
+    /**
+     * Produkten har en tagg vars namn innehåller term, oavsett skiftläge.
+     */
+    public static Specification<ProductListing> hasTagMatching(String term) {
+        String pattern = LikePatterns.containing(term.toUpperCase());
+        return (listing, query, cb) -> cb.exists(tagSubquery(listing, query, cb,
+                tag -> cb.literal(1L), tag -> cb.like(cb.upper(tag.get("name")), pattern, LikePatterns.ESCAPE)));
+    }
+
+    // Delfråga över produktens taggar som uppfyller tagCondition, korrelerad på produkt-ID
+    private static Subquery<Long> tagSubquery(Root<ProductListing> listing, CriteriaQuery<?> query, CriteriaBuilder cb,
+                                              Function<Root<Tag>, Expression<Long>> selection,
+                                              Function<Root<Tag>, Predicate> tagCondition) {
+        Subquery<Long> subquery = query.subquery(Long.class);
+        Root<ProductTag> link = subquery.from(ProductTag.class);
+        Root<Tag> tag = subquery.from(Tag.class);
+        return subquery.select(selection.apply(tag)).where(
+                cb.equal(link.get("productId"), listing.get("productId")),
+                cb.equal(link.get("tagId"), tag.get("id")),
+                tagCondition.apply(tag));
+    }
+}
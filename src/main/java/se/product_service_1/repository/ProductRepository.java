@@ -1,8 +1,13 @@
 package se.product_service_1.repository;
 
 import se.product_service_1.model.Product;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,4 +16,18 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     List<Product> findByCategoryName(String categoryName);
 
     Optional<Product> findByName(String name);
+
+    boolean existsByCategoryName(String categoryName);
+
+    // Produkterna vars ID:n ligger i den temporära tabellen query_ids (se IdListQueries)
+    @Query(value = "SELECT p.* FROM products p JOIN query_ids q ON q.id = p.id", nativeQuery = true)
+    List<Product> findAllInQueryIds();
+
+    @Query("SELECT p.id FROM Product p WHERE p.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // Radlåsen tas i ID-ordning, så att två samtidiga lagerändringar inte låser varandra
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Product p WHERE p.id IN :ids ORDER BY p.id")
+    List<Product> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
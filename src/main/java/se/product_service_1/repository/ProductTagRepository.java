@@ -5,6 +5,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import se.product_service_1.model.ProductTag;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface ProductTagRepository extends JpaRepository<ProductTag, Long> {
@@ -22,4 +23,21 @@ public interface ProductTagRepository extends JpaRepository<ProductTag, Long> {
 
     @Query("SELECT pt.tagId FROM ProductTag pt WHERE pt.productId = :productId")
     List<Long> findTagIdsByProductId(@Param("productId") Long productId);
+
+    @Query("SELECT pt.productId AS productId, t.name AS tagName FROM ProductTag pt JOIN Tag t ON t.id = pt.tagId " +
+            "WHERE pt.productId IN :productIds ORDER BY t.id")
+    List<ProductTagName> findTagNamesByProductIds(@Param("productIds") Collection<Long> productIds);
+
+    // Som findTagNamesByProductIds, för produkt-ID:na i den temporära tabellen query_ids (se IdListQueries)
+    @Query(value = "SELECT pt.product_id AS productId, t.name AS tagName FROM product_tags pt " +
+            "JOIN tags t ON t.id = pt.tag_id JOIN query_ids q ON q.id = pt.product_id ORDER BY t.id", nativeQuery = true)
+    List<ProductTagName> findTagNamesInQueryIds();
+
+    long countByTagId(Long tagId);
+
+    interface ProductTagName {
+        Long getProductId();
+
+        String getTagName();
+    }
 }
\ No newline at end of file
@@ -1,21 +1,55 @@
 package se.product_service_1.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import se.product_service_1.dto.TagResponse;
 import se.product_service_1.model.Tag;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface TagRepository extends JpaRepository<Tag, Long> {
 
+    // Antalet produkter räknas i samma fråga via indexet på product_tags(tag_id, product_id)
+    String RESPONSE = "SELECT new se.product_service_1.dto.TagResponse(t.id, t.name, t.description, " +
+            "(SELECT COUNT(pt) FROM ProductTag pt WHERE pt.tagId = t.id)) FROM Tag t ";
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Tag> findByName(String name);
 
-    List<Tag> findByNameContainingIgnoreCase(String name);
+    List<Tag> findByNameIn(Collection<String> names);
 
     @Query("SELECT t FROM Tag t WHERE LOWER(t.name) IN :tagNames")
     List<Tag> findByNamesIgnoreCase(@Param("tagNames") List<String> tagNames);
 
     boolean existsByName(String name);
-}
\ No newline at end of file
+
+    @Query("SELECT t.id FROM Tag t WHERE t.name IN :names")
+    List<Long> findIdsByNameIn(@Param("names") Collection<String> names);
+
+    @Query("SELECT t.id FROM Tag t WHERE UPPER(t.name) LIKE UPPER(:pattern) ESCAPE '\\'")
+    List<Long> findIdsByNameLike(@Param("pattern") String pattern);
+
+    default List<Long> findIdsByNameContaining(String searchTerm) {
+        return findIdsByNameLike(LikePatterns.containing(searchTerm));
+    }
+
+    @Query(RESPONSE + "ORDER BY t.id")
+    List<TagResponse> findAllResponses();
+
+    @Query(RESPONSE + "WHERE t.name = :name")
+    Optional<TagResponse> findResponseByName(@Param("name") String name);
+
+    @Query(RESPONSE + "WHERE UPPER(t.name) LIKE UPPER(:pattern) ESCAPE '\\' ORDER BY t.id")
+    List<TagResponse> findResponsesByNameLike(@Param("pattern") String pattern);
+
+    // Sökordet matchas bokstavligt, även %, _ och \ (se LikePatterns)
+    default List<TagResponse> findResponsesByNameContaining(String searchTerm) {
+        return findResponsesByNameLike(LikePatterns.containing(searchTerm));
+    }
+}
@@ -0,0 +1,139 @@
+package se.product_service_1.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import se.product_service_1.config.ReadRouting;
+import se.product_service_1.dto.CachedCatalogResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Färdigserialiserade (och gzippade) svar för katalogens listendpoints, nycklade på
+ * katalogrevisionen. En träff gör varken databasanrop eller Jackson-arbete.
+ * <p>
+ * Revisionen räknas upp efter commit av varje ändring av produkter, kategorier och taggar.
+ * Revisionen läses innan svaret byggs, så ett svar som byggts av data från före en ändring
+ * hamnar alltid under den gamla revisionen.
+ * <p>
+ * Revisionen finns bara i den här instansen; ändringar gjorda av andra instanser syns först när
+ * posten blir äldre än max-age. ETag:en är en hash av svaret, så den är densamma i alla instanser
+ * och ändras när ett omladdat svar skiljer sig från det gamla.
+ */
+@Component
+public class CatalogResponseCache {
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final Cache<Key, CachedCatalogResponse> cache;
+    private final AtomicLong revision = new AtomicLong();
+
+    public CatalogResponseCache(ObjectMapper objectMapper,
+                                @Value("${catalog.response-cache.enabled:true}") boolean enabled,
+                                @Value("${catalog.response-cache.max-entries:1000}") long maxEntries,
+                                @Value("${catalog.response-cache.max-age:PT30S}") Duration maxAge) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(maxAge)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Svaret för path vid aktuell revision; loader anropas bara vid miss.
+     */
+    public CachedCatalogResponse get(String path, Supplier<Object> loader) {
+        long current = revision.get();
+        if (!enabled) {
+            return serialize(loader.get());
+        }
+        // Laddas från primären: en replik som ligger efter skulle annars cacha gammal data
+        // under den nya revisionen tills nästa ändring
+        return cache.get(new Key(current, path), key -> serialize(ReadRouting.onPrimary(loader)));
+    }
+
+    /**
+     * Markerar katalogen som ändrad. Inom en transaktion sker det först efter commit så att
+     * ingen läsare hinner cacha data från före ändringen under den nya revisionen.
+     */
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bump();
+                }
+            });
+        } else {
+            bump();
+        }
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    public double hitRatio() {
+        return cache.stats().hitRate();
+    }
+
+    private void bump() {
+        revision.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    private CachedCatalogResponse serialize(Object body) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Could not serialize catalog response", ex);
+        }
+        byte[] gzip = gzip(json);
+        String tag = contentHash(json);
+        return CachedCatalogResponse.builder()
+                .json(json)
+                .gzip(gzip.length < json.length ? gzip : null)
+                .eTag("\"" + tag + "\"")
+                .gzipETag("\"" + tag + "-gz\"")
+                .build();
+    }
+
+    private static String contentHash(byte[] json) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(json);
+            return HexFormat.of().formatHex(hash, 0, 16);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return out.toByteArray();
+    }
+
+    private record Key(long revision, String path) {
+    }
+}
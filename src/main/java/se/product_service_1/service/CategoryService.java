@@ -1,17 +1,21 @@
 package se.product_service_1.service;
 
 
-import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import se.product_service_1.dto.CategoryStatsResponse;
 import se.product_service_1.exception.CategoryAlreadyExistsException;
 import se.product_service_1.exception.CategoryNotEmptyException;
 import se.product_service_1.exception.CategoryNotFoundException;
 import se.product_service_1.model.Category;
 import se.product_service_1.repository.CategoryRepository;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class CategoryService {
@@ -19,13 +23,19 @@ public class CategoryService {
     private static final Logger log = LoggerFactory.getLogger(CategoryService.class);
     private final CategoryRepository categoryRepository;
     private final ProductService productService;
+    private final CatalogResponseCache catalogResponseCache;
+    private final ShardRouter shardRouter;
 
 
-    public CategoryService(CategoryRepository categoryRepository, ProductService productService) {
+    public CategoryService(CategoryRepository categoryRepository, ProductService productService,
+                           CatalogResponseCache catalogResponseCache, ShardRouter shardRouter) {
         this.categoryRepository = categoryRepository;
         this.productService = productService;
+        this.catalogResponseCache = catalogResponseCache;
+        this.shardRouter = shardRouter;
     }
 
+    @Transactional(readOnly = true)
     public Category getCategoryByName(String name) {
         try {
             log.info("Hämtar kategori med namn {}", name);
@@ -36,6 +46,7 @@ public class CategoryService {
         }
     }
 
+    @Transactional
     public Category addCategory(Category category) {
         log.info("addCategory - försök spara category: categoryName={}", category.getName());
 
@@ -43,26 +54,34 @@ public class CategoryService {
             throw new CategoryAlreadyExistsException("Category med Id " + category.getId() + "finns redan.");
         }
 
-        Category savedCategory = categoryRepository.save(category);
+        // Kategorin skapas på hemmasharden och kopieras med samma ID till övriga shards
+        Category savedCategory = shardRouter.onHome(() -> categoryRepository.save(category));
+        shardRouter.replicate("categories", savedCategory.getId(), savedCategory.getName());
+        catalogResponseCache.invalidate();
         log.info("addCategory - sparad category med Id={}", savedCategory.getId());
         return savedCategory;
     }
     @Transactional
     public void deleteCategoryByName(String name) {
-        if (productService.getProductsByCategory(name).isEmpty()) {
+        if (!productService.hasProductsInCategory(name)) {
             Category category = categoryRepository.findByName(name)
                     .orElseThrow(() -> {
                         log.error("Fel uppstod vid hämtning av kategori med namn: {}", name);
                         return new CategoryNotFoundException("Kategori med namn: " + name + " existerar inte.");
                     });
 
-            categoryRepository.deleteByName(name);
+            shardRouter.forEachShard(shard -> {
+                categoryRepository.deleteByName(name);
+                return null;
+            });
+            catalogResponseCache.invalidate();
         } else {
             throw new CategoryNotEmptyException("Kategori med namn: " + name + " är inte tom.");
         }
 
     }
 
+    @Transactional(readOnly = true)
     public List<Category> getAllCategories() {
         log.debug("getAllCategories - hämta alla categories");
         List<Category> list = categoryRepository.findAll();
@@ -70,6 +89,30 @@ public class CategoryService {
         return list;
     }
 
+    @Transactional(readOnly = true)
+    public List<CategoryStatsResponse> getCategoryStats() {
+        log.debug("getCategoryStats - beräkna statistik per kategori");
+        List<CategoryStatsResponse> perShard = shardRouter.scatter(shard -> categoryRepository.findStats());
+        if (!shardRouter.isSharded()) {
+            return perShard;
+        }
+        // Kategorierna finns i alla shards, i samma namnordning; produkternas del summeras per namn
+        Map<String, CategoryStatsResponse> merged = new LinkedHashMap<>();
+        for (CategoryStatsResponse stats : perShard) {
+            merged.merge(stats.getCategoryName(), stats, CategoryService::combine);
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    private static CategoryStatsResponse combine(CategoryStatsResponse a, CategoryStatsResponse b) {
+        return new CategoryStatsResponse(a.getCategoryName(),
+                a.getProductCount() + b.getProductCount(),
+                a.getTotalStock() + b.getTotalStock(),
+                a.getStockValue() + b.getStockValue(),
+                a.getMinPrice() == null ? b.getMinPrice() : b.getMinPrice() == null ? a.getMinPrice() : Math.min(a.getMinPrice(), b.getMinPrice()),
+                a.getMaxPrice() == null ? b.getMaxPrice() : b.getMaxPrice() == null ? a.getMaxPrice() : Math.max(a.getMaxPrice(), b.getMaxPrice()));
+    }
+
 
 
 }
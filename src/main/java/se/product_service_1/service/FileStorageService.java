@@ -1,13 +1,17 @@
 package se.product_service_1.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 import se.product_service_1.config.FileStorageConfig;
+import se.product_service_1.dto.ProductImageMetadata;
 import se.product_service_1.exception.BadRequestException;
 import se.product_service_1.exception.ResourceNotFoundException;
 import se.product_service_1.model.Product;
@@ -16,13 +20,25 @@ import se.product_service_1.repository.ProductImageRepository;
 import se.product_service_1.repository.ProductRepository;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 @Service
 public class FileStorageService {
@@ -30,17 +46,38 @@ public class FileStorageService {
     private static final List<String> ALLOWED_CONTENT_TYPES = Arrays.asList(
             "image/jpeg", "image/png", "image/gif", "application/pdf"
     );
+    private static final int MAX_BATCH_PRODUCT_IDS = 500;
 
     private final Path fileStorageLocation;
     private final ProductImageRepository productImageRepository;
     private final ProductRepository productRepository;
+    private final ProductImageMetadataCache imageMetadataCache;
+    private final HotImageCache hotImageCache;
+    private final Counter uploadedBytes;
+    private final Counter downloadedBytes;
+    private final ShardRouter shardRouter;
 
     public FileStorageService(FileStorageConfig fileStorageConfig,
                               ProductImageRepository productImageRepository,
-                              ProductRepository productRepository) {
+                              ProductRepository productRepository,
+                              ProductImageMetadataCache imageMetadataCache,
+                              HotImageCache hotImageCache,
+                              MeterRegistry meterRegistry,
+                              ShardRouter shardRouter) {
         this.fileStorageLocation = Paths.get(fileStorageConfig.getUploadDir()).toAbsolutePath().normalize();
         this.productImageRepository = productImageRepository;
         this.productRepository = productRepository;
+        this.imageMetadataCache = imageMetadataCache;
+        this.hotImageCache = hotImageCache;
+        this.shardRouter = shardRouter;
+        this.uploadedBytes = Counter.builder("product.image.upload")
+                .baseUnit("bytes")
+                .description("Bytes of product images stored")
+                .register(meterRegistry);
+        this.downloadedBytes = Counter.builder("product.image.download")
+                .baseUnit("bytes")
+                .description("Bytes of product images served")
+                .register(meterRegistry);
 
         try {
             Files.createDirectories(this.fileStorageLocation);
@@ -50,6 +87,11 @@ public class FileStorageService {
     }
 
     public ProductImage storeFile(Long productId, MultipartFile file) {
+        // Bildposten hamnar i samma shard som produkten
+        return shardRouter.onShardOf(productId, () -> storeFileOnShard(productId, file));
+    }
+
+    private ProductImage storeFileOnShard(Long productId, MultipartFile file) {
         log.info("Storing file for product ID: {}", productId);
 
         // Validera produkten
@@ -73,9 +115,12 @@ public class FileStorageService {
             String fileExtension = getFileExtension(originalFilename);
             String uniqueFilename = UUID.randomUUID().toString() + fileExtension;
 
-            // Spara filen på filsystemet
+            // Spara filen på filsystemet och räkna fram innehållets hash i samma pass
             Path targetLocation = this.fileStorageLocation.resolve(uniqueFilename);
-            Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                Files.copy(in, targetLocation, StandardCopyOption.REPLACE_EXISTING);
+            }
 
             // Skapa och spara ProductImage-entitet
             ProductImage productImage = ProductImage.builder()
@@ -83,46 +128,124 @@ public class FileStorageService {
                     .fileName(originalFilename)
                     .contentType(contentType)
                     .filePath(uniqueFilename)
+                    .contentHash(HexFormat.of().formatHex(digest.digest()))
                     .build();
 
-            return productImageRepository.save(productImage);
-        } catch (IOException ex) {
+            ProductImage saved = productImageRepository.save(productImage);
+            uploadedBytes.increment(file.getSize());
+            imageMetadataCache.invalidate(productId, originalFilename, saved.getContentHash());
+            return saved;
+        } catch (IOException | NoSuchAlgorithmException ex) {
             log.error("Could not store file", ex);
             throw new RuntimeException("Could not store file. Please try again.", ex);
         }
     }
 
     public Resource loadFileAsResource(Long productId, String filename) {
+        return new FileSystemResource(loadImageMetadata(productId, filename).getPath());
+    }
+
+    /**
+     * Hämtar metadata för en bild, i första hand från cachen. Vid cachemiss slås bilden upp
+     * i databasen och filen stat:as en gång.
+     */
+    public ProductImageMetadata loadImageMetadata(Long productId, String filename) {
+        return imageMetadataCache.get(productId, filename, () -> resolveImageMetadata(productId, filename,
+                () -> shardRouter.onShardOf(productId,
+                        () -> productImageRepository.findFirstByProductIdAndFileNameOrderByIdDesc(productId, filename))));
+    }
+
+    /**
+     * Som {@link #loadImageMetadata(Long, String)} men för en bestämd innehållsversion.
+     */
+    public ProductImageMetadata loadImageMetadata(Long productId, String filename, String contentHash) {
+        return imageMetadataCache.get(productId, filename, contentHash, () -> resolveImageMetadata(productId, filename,
+                () -> shardRouter.onShardOf(productId,
+                        () -> productImageRepository.findFirstByProductIdAndFileNameAndContentHash(productId, filename, contentHash))));
+    }
+
+    /**
+     * Bildens bytes ur off-heap-cachen för populära bilder, eller null om bilden ska
+     * serveras från filsystemet.
+     */
+    public ByteBuffer loadCachedImageBytes(ProductImageMetadata image) {
+        return hotImageCache.get(image);
+    }
+
+    public void recordDownload(ProductImageMetadata image) {
+        downloadedBytes.increment(image.getSize());
+    }
+
+    private ProductImageMetadata resolveImageMetadata(Long productId, String filename,
+                                                      Supplier<Optional<ProductImage>> lookup) {
         log.info("Loading file for product ID: {} with filename: {}", productId, filename);
 
         try {
-            ProductImage productImage = productImageRepository.findByProductIdAndFileName(productId, filename)
+            ProductImage productImage = lookup.get()
                     .orElseThrow(() -> new ResourceNotFoundException("File not found: " + filename));
 
             Path filePath = this.fileStorageLocation.resolve(productImage.getFilePath()).normalize();
-            Resource resource = new FileSystemResource(filePath.toFile());
+            BasicFileAttributes attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
 
-            if (resource.exists()) {
-                return resource;
-            } else {
-                throw new ResourceNotFoundException("File not found: " + filename);
-            }
+            return ProductImageMetadata.builder()
+                    .imageId(productImage.getId())
+                    .productId(productId)
+                    .fileName(filename)
+                    .path(filePath)
+                    .size(attributes.size())
+                    .contentType(productImage.getContentType())
+                    .contentHash(productImage.getContentHash())
+                    .eTag(buildETag(productImage, attributes))
+                    .build();
         } catch (Exception ex) {
             log.error("Could not load file", ex);
             throw new ResourceNotFoundException("File not found: " + filename);
         }
     }
 
+    @Transactional(readOnly = true)
     public List<ProductImage> getProductImages(Long productId) {
-        // Validera produkten
-        if (!productRepository.existsById(productId)) {
-            throw new ResourceNotFoundException("Product not found with id: " + productId);
+        return shardRouter.onShardOf(productId, () -> {
+            // Validera produkten
+            if (!productRepository.existsById(productId)) {
+                throw new ResourceNotFoundException("Product not found with id: " + productId);
+            }
+
+            return productImageRepository.findByProductId(productId);
+        });
+    }
+
+    /**
+     * Hämtar bilderna för flera produkter med en enda fråga, grupperade per produkt-ID
+     * i samma ordning som förfrågan. Okända produkter ger en tom lista.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, List<ProductImage>> getProductImages(List<Long> productIds) {
+        if (productIds.size() > MAX_BATCH_PRODUCT_IDS) {
+            throw new BadRequestException("Too many product ids, max " + MAX_BATCH_PRODUCT_IDS);
+        }
+
+        Map<Long, List<ProductImage>> imagesByProduct = new LinkedHashMap<>();
+        for (Long productId : productIds) {
+            imagesByProduct.put(productId, new ArrayList<>());
+        }
+        if (imagesByProduct.isEmpty()) {
+            return imagesByProduct;
         }
 
-        return productImageRepository.findByProductId(productId);
+        List<ProductImage> images = shardRouter.scatterByProductIds(imagesByProduct.keySet(),
+                productImageRepository::findByProductIdInOrderByProductIdAscIdAsc);
+        for (ProductImage image : images) {
+            imagesByProduct.get(image.getProductId()).add(image);
+        }
+        return imagesByProduct;
     }
 
     public void deleteProductImage(Long productId, Long imageId) {
+        shardRouter.runOnShardOf(productId, () -> deleteProductImageOnShard(productId, imageId));
+    }
+
+    private void deleteProductImageOnShard(Long productId, Long imageId) {
         ProductImage productImage = productImageRepository.findById(imageId)
                 .orElseThrow(() -> new ResourceNotFoundException("Image not found with id: " + imageId));
 
@@ -137,6 +260,8 @@ public class FileStorageService {
 
             // Ta bort databasposten
             productImageRepository.deleteById(imageId);
+            imageMetadataCache.invalidate(productId, productImage.getFileName(), productImage.getContentHash());
+            hotImageCache.invalidate(imageId);
             log.info("Deleted product image with ID: {}", imageId);
         } catch (IOException ex) {
             log.error("Could not delete file", ex);
@@ -144,6 +269,40 @@ public class FileStorageService {
         }
     }
 
+    /**
+     * Tar bort bildposterna för en produkt och rensar cacherna. Filerna lämnas kvar och
+     * städas bort av UploadReconciler efter karenstiden, så att en rollback inte
+     * lämnar poster som pekar på raderade filer.
+     */
+    public void deleteImageRecordsForProduct(Long productId) {
+        removeImageRecords(productImageRepository.findByProductId(productId));
+    }
+
+    public void removeImageRecords(List<ProductImage> images) {
+        if (images.isEmpty()) {
+            return;
+        }
+        productImageRepository.deleteAllInBatch(images);
+        for (ProductImage image : images) {
+            imageMetadataCache.invalidate(image.getProductId(), image.getFileName(), image.getContentHash());
+            hotImageCache.invalidate(image.getId());
+        }
+        log.info("Removed {} product image records", images.size());
+    }
+
+    public Path getFileStorageLocation() {
+        return fileStorageLocation;
+    }
+
+    private String buildETag(ProductImage image, BasicFileAttributes attributes) {
+        if (image.getContentHash() != null) {
+            return "\"" + image.getContentHash() + "\"";
+        }
+        // Bilder uppladdade innan innehållshashen fanns
+        return "\"" + image.getId() + "-" + Long.toHexString(attributes.size())
+                + "-" + Long.toHexString(attributes.lastModifiedTime().toMillis()) + "\"";
+    }
+
     private String getFileExtension(String filename) {
         if (filename == null || filename.lastIndexOf(".") == -1) {
             return "";
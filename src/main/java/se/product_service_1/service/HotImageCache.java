@@ -0,0 +1,103 @@
+package se.product_service_1.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import se.product_service_1.dto.ProductImageMetadata;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Valfri off-heap-cache för bytes hos de mest efterfrågade bilderna.
+ * Begränsas av totalt antal bytes; Caffeines W-TinyLFU-policy gör att
+ * sällan efterfrågade bilder inte tränger undan de populära.
+ */
+@Component
+public class HotImageCache {
+
+    private static final Logger log = LoggerFactory.getLogger(HotImageCache.class);
+
+    private final boolean enabled;
+    private final long maxImageBytes;
+    private final Cache<Long, ByteBuffer> cache;
+
+    public HotImageCache(@Value("${file.hot-image-cache.enabled:false}") boolean enabled,
+                         @Value("${file.hot-image-cache.max-bytes:67108864}") long maxBytes,
+                         @Value("${file.hot-image-cache.max-image-bytes:2097152}") long maxImageBytes) {
+        this.enabled = enabled;
+        this.maxImageBytes = maxImageBytes;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Long imageId, ByteBuffer buffer) -> buffer.capacity())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returnerar en skrivskyddad direct buffer med bildens bytes, eller null om cachen är
+     * avstängd, bilden är för stor eller inte kunde läsas. Anroparen ska använda
+     * {@link ByteBuffer#duplicate()} eftersom buffern delas mellan trådar.
+     */
+    public ByteBuffer get(ProductImageMetadata image) {
+        if (!enabled || image.getSize() > maxImageBytes) {
+            return null;
+        }
+        return cache.get(image.getImageId(), imageId -> load(image));
+    }
+
+    public void invalidate(Long imageId) {
+        cache.invalidate(imageId);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public double hitRatio() {
+        return cache.stats().hitRate();
+    }
+
+    public long residentBytes() {
+        // Caffeine uppdaterar vikterna asynkront; töm skrivbufferten för en exakt siffra
+        cache.cleanUp();
+        return cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+    }
+
+    public Map<String, Object> stats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("entries", cache.estimatedSize());
+        result.put("residentBytes", residentBytes());
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRatio", stats.hitRate());
+        result.put("evictionCount", stats.evictionCount());
+        return result;
+    }
+
+    private ByteBuffer load(ProductImageMetadata image) {
+        try (FileChannel channel = FileChannel.open(image.getPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // läs tills filen är slut
+            }
+            buffer.flip();
+            return buffer.asReadOnlyBuffer();
+        } catch (IOException ex) {
+            log.warn("Could not load image {} into hot cache", image.getPath(), ex);
+            return null;
+        }
+    }
+}
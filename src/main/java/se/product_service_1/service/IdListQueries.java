@@ -0,0 +1,118 @@
+package se.product_service_1.service;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Frågor över godtyckligt många produkt-ID:n. Upp till chunk-size ID:n körs IN-frågan direkt;
+ * Hibernate fyller ut listan till närmaste tvåpotens (hibernate.query.in_clause_parameter_padding)
+ * så att databasen återanvänder några få planer. Större mängder delas upp i chunks om chunk-size
+ * i anroparens transaktion. Över temp-table-threshold läggs ID:na i stället i den sessionsbundna
+ * temporära tabellen query_ids och frågan joinar mot den.
+ * <p>
+ * Den temporära tabellen används bara i skrivande transaktioner: läsande transaktioner kan gå
+ * mot repliken, där tabeller inte kan skapas. Där används chunks oavsett storlek.
+ */
+@Component
+public class IdListQueries {
+
+    static final String TEMP_TABLE = "query_ids";
+    private static final int INSERT_BATCH_SIZE = 1000;
+
+    private final EntityManager entityManager;
+    private final int chunkSize;
+    private final int tempTableThreshold;
+
+    public IdListQueries(EntityManager entityManager,
+                         @Value("${catalog.id-lists.chunk-size:512}") int chunkSize,
+                         @Value("${catalog.id-lists.temp-table-threshold:4096}") int tempTableThreshold) {
+        this.entityManager = entityManager;
+        this.chunkSize = chunkSize;
+        this.tempTableThreshold = tempTableThreshold;
+    }
+
+    /**
+     * Utan temporär tabell, för tester av tjänsterna.
+     */
+    static IdListQueries chunked(int chunkSize) {
+        return new IdListQueries(null, chunkSize, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Kör inQuery för ID:na, i chunks om det behövs, eller joinQuery mot query_ids när mängden
+     * är över tröskeln. Båda frågorna ska ge samma rader; resultaten slås ihop i chunkordning.
+     */
+    public <T> List<T> query(Collection<Long> ids, Function<Collection<Long>, List<T>> inQuery,
+                             Supplier<List<T>> joinQuery) {
+        if (ids.size() <= chunkSize) {
+            return ids.isEmpty() ? new ArrayList<>() : inQuery.apply(ids);
+        }
+        if (ids.size() > tempTableThreshold && inWritingTransaction()) {
+            loadTempTable(ids);
+            return joinQuery.get();
+        }
+        List<Long> all = new ArrayList<>(ids);
+        List<T> results = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += chunkSize) {
+            results.addAll(inQuery.apply(all.subList(from, Math.min(from + chunkSize, all.size()))));
+        }
+        return results;
+    }
+
+    private static boolean inWritingTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    /**
+     * Skapar query_ids för anslutningen om den saknas och ersätter innehållet med ids. Raderna
+     * försvinner vid commit.
+     */
+    private void loadTempTable(Collection<Long> ids) {
+        String create = createTempTableSql(entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect());
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(create);
+                statement.executeUpdate("delete from " + TEMP_TABLE);
+            }
+            try (PreparedStatement insert = connection.prepareStatement("insert into " + TEMP_TABLE + " (id) values (?)")) {
+                int pending = 0;
+                for (Long id : new HashSet<>(ids)) {
+                    insert.setLong(1, id);
+                    insert.addBatch();
+                    if (++pending == INSERT_BATCH_SIZE) {
+                        insert.executeBatch();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    insert.executeBatch();
+                }
+            }
+        });
+    }
+
+    // H2 committar öppna transaktioner vid CREATE TABLE utan TRANSACTIONAL
+    static String createTempTableSql(Dialect dialect) {
+        String columns = " (id bigint primary key) on commit delete rows";
+        return dialect instanceof H2Dialect
+                ? "create local temporary table if not exists " + TEMP_TABLE + columns + " transactional"
+                : "create temporary table if not exists " + TEMP_TABLE + columns;
+    }
+}
@@ -0,0 +1,208 @@
+package se.product_service_1.service;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Oföränderligt index över produktpriser: två parallella primitiva arrayer sorterade på
+ * (pris, produkt-ID). Ett prisintervall är två binärsökningar, och en sida av intervallet
+ * kopieras rakt ut ur ID-arrayen utan boxning eller allokering per träff.
+ * <p>
+ * Ändringar ger ett nytt index; läsare som håller ett äldre påverkas inte. Varje ändring
+ * kopierar hela indexet, så ändringar bör samlas och göras med withChanges.
+ */
+public final class PriceIndex {
+
+    private static final PriceIndex EMPTY = new PriceIndex(new double[0], new long[0]);
+
+    private final double[] prices;
+    private final long[] productIds;
+
+    private PriceIndex(double[] prices, long[] productIds) {
+        this.prices = prices;
+        this.productIds = productIds;
+    }
+
+    public static PriceIndex empty() {
+        return EMPTY;
+    }
+
+    public int size() {
+        return productIds.length;
+    }
+
+    /**
+     * Antal produkter med pris i [minPrice, maxPrice].
+     */
+    public int count(double minPrice, double maxPrice) {
+        return Math.max(0, upperBound(maxPrice) - lowerBound(minPrice));
+    }
+
+    /**
+     * Fyller into med produkt-ID:n ur intervallet [minPrice, maxPrice], från och med plats offset
+     * i prisordning (eller omvänd ordning), och returnerar hur många som skrevs.
+     */
+    public int page(double minPrice, double maxPrice, int offset, boolean descending, long[] into) {
+        int from = lowerBound(minPrice);
+        int to = upperBound(maxPrice);
+        int count = Math.max(0, Math.min(into.length, to - from - offset));
+        if (count == 0) {
+            return 0;
+        }
+        if (!descending) {
+            System.arraycopy(productIds, from + offset, into, 0, count);
+            return count;
+        }
+        int start = to - 1 - offset;
+        for (int i = 0; i < count; i++) {
+            into[i] = productIds[start - i];
+        }
+        return count;
+    }
+
+    /**
+     * Indexet med produktens pris satt till price, oavsett om den fanns förut.
+     */
+    public PriceIndex with(long productId, double price) {
+        return withChanges(Map.of(productId, price));
+    }
+
+    /**
+     * Indexet utan produkten.
+     */
+    public PriceIndex without(long productId) {
+        return withChanges(Collections.singletonMap(productId, null));
+    }
+
+    /**
+     * Indexet med alla ändringar gjorda: nytt pris per produkt-ID, null för borttagen. Gamla
+     * och nya poster slås ihop i ett svep, så en samling ändringar kopierar indexet en gång.
+     */
+    public PriceIndex withChanges(Map<Long, Double> changes) {
+        if (changes.isEmpty()) {
+            return this;
+        }
+        long[] changed = changes.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        Builder added = new Builder();
+        changes.entrySet().stream()
+                .filter(change -> change.getValue() != null)
+                .sorted((a, b) -> compare(a.getValue(), a.getKey(), b.getValue(), b.getKey()))
+                .forEach(change -> added.add(change.getKey(), change.getValue()));
+
+        int kept = 0;
+        for (long productId : productIds) {
+            if (Arrays.binarySearch(changed, productId) < 0) {
+                kept++;
+            }
+        }
+        if (kept == productIds.length && added.size == 0) {
+            return this;
+        }
+        int size = kept + added.size;
+        double[] newPrices = new double[size];
+        long[] newIds = new long[size];
+        int a = 0;
+        int b = 0;
+        for (int i = 0; i < size; i++) {
+            while (a < productIds.length && Arrays.binarySearch(changed, productIds[a]) >= 0) {
+                a++;
+            }
+            boolean takeOld = b == added.size || (a < productIds.length
+                    && compare(prices[a], productIds[a], added.prices[b], added.productIds[b]) <= 0);
+            if (takeOld) {
+                newPrices[i] = prices[a];
+                newIds[i] = productIds[a++];
+            } else {
+                newPrices[i] = added.prices[b];
+                newIds[i] = added.productIds[b++];
+            }
+        }
+        return new PriceIndex(newPrices, newIds);
+    }
+
+    /**
+     * Slår ihop två index, t.ex. två shards, med bibehållen sortering.
+     */
+    public static PriceIndex merge(PriceIndex first, PriceIndex second) {
+        int size = first.size() + second.size();
+        double[] prices = new double[size];
+        long[] ids = new long[size];
+        int a = 0;
+        int b = 0;
+        for (int i = 0; i < size; i++) {
+            boolean takeFirst = b == second.size() || (a < first.size()
+                    && compare(first.prices[a], first.productIds[a], second.prices[b], second.productIds[b]) <= 0);
+            if (takeFirst) {
+                prices[i] = first.prices[a];
+                ids[i] = first.productIds[a++];
+            } else {
+                prices[i] = second.prices[b];
+                ids[i] = second.productIds[b++];
+            }
+        }
+        return new PriceIndex(prices, ids);
+    }
+
+    // Första platsen med pris >= minPrice
+    private int lowerBound(double minPrice) {
+        int low = 0;
+        int high = prices.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (prices[mid] < minPrice) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Första platsen med pris > maxPrice
+    private int upperBound(double maxPrice) {
+        int low = 0;
+        int high = prices.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (prices[mid] <= maxPrice) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int compare(double price, long productId, double otherPrice, long otherProductId) {
+        int byPrice = Double.compare(price, otherPrice);
+        return byPrice != 0 ? byPrice : Long.compare(productId, otherProductId);
+    }
+
+    /**
+     * Bygger ett index av rader som kommer i (pris, produkt-ID)-ordning.
+     */
+    public static final class Builder {
+
+        private double[] prices = new double[1024];
+        private long[] productIds = new long[1024];
+        private int size;
+
+        public Builder add(long productId, double price) {
+            if (size > 0 && compare(prices[size - 1], productIds[size - 1], price, productId) > 0) {
+                throw new IllegalStateException("Rows must be added in (price, id) order");
+            }
+            if (size == productIds.length) {
+                prices = Arrays.copyOf(prices, size * 2);
+                productIds = Arrays.copyOf(productIds, size * 2);
+            }
+            prices[size] = price;
+            productIds[size++] = productId;
+            return this;
+        }
+
+        public PriceIndex build() {
+            return new PriceIndex(Arrays.copyOf(prices, size), Arrays.copyOf(productIds, size));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package se.product_service_1.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import se.product_service_1.config.ReadRouting;
+import se.product_service_1.dto.ProductImageMetadata;
+
+import java.util.function.Supplier;
+
+/**
+ * Begränsad cache för bildmetadata, nycklad på (productId, fileName) för den senaste
+ * versionen och (productId, fileName, contentHash) för versionerade adresser.
+ * Invalideras av FileStorageService när bilder laddas upp eller raderas.
+ */
+@Component
+public class ProductImageMetadataCache {
+
+    private final Cache<Key, ProductImageMetadata> cache;
+
+    public ProductImageMetadataCache(@Value("${file.image-cache.max-entries:10000}") long maxEntries) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .recordStats()
+                .build();
+    }
+
+    public ProductImageMetadata get(Long productId, String fileName, Supplier<ProductImageMetadata> loader) {
+        // Senaste versionen byts vid ny uppladdning och laddas därför alltid från primären
+        return cache.get(new Key(productId, fileName, null), key -> ReadRouting.onPrimary(loader));
+    }
+
+    public ProductImageMetadata get(Long productId, String fileName, String contentHash,
+                                    Supplier<ProductImageMetadata> loader) {
+        return cache.get(new Key(productId, fileName, contentHash), key -> loader.get());
+    }
+
+    public void invalidate(Long productId, String fileName, String contentHash) {
+        cache.invalidate(new Key(productId, fileName, null));
+        if (contentHash != null) {
+            cache.invalidate(new Key(productId, fileName, contentHash));
+        }
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    public double hitRatio() {
+        return cache.stats().hitRate();
+    }
+
+    private record Key(Long productId, String fileName, String contentHash) {
+    }
+}
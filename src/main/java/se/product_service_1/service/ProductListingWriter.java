@@ -0,0 +1,89 @@
+package se.product_service_1.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import se.product_service_1.model.Product;
+import se.product_service_1.model.ProductListing;
+import se.product_service_1.repository.ProductListingRepository;
+import se.product_service_1.repository.ProductRepository;
+import se.product_service_1.repository.ProductTagRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Håller läsmodellen product_listings i takt med products, product_tags och tags.
+ * Anropas från skrivande tjänstemetoder och går med i deras transaktion, så att läsmodellen
+ * aldrig visar en ändring som sedan rullas tillbaka.
+ */
+@Component
+public class ProductListingWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductListingWriter.class);
+
+    private final ProductRepository productRepository;
+    private final ProductTagRepository productTagRepository;
+    private final ProductListingRepository productListingRepository;
+    private final IdListQueries idListQueries;
+
+    public ProductListingWriter(ProductRepository productRepository, ProductTagRepository productTagRepository,
+                                ProductListingRepository productListingRepository, IdListQueries idListQueries) {
+        this.productRepository = productRepository;
+        this.productTagRepository = productTagRepository;
+        this.productListingRepository = productListingRepository;
+        this.idListQueries = idListQueries;
+    }
+
+    /**
+     * Bygger om raderna för de givna produkterna från källtabellerna. Produkter som inte
+     * längre finns tas bort ur läsmodellen. En tagg som ändras eller raderas kan röra tusentals
+     * produkter; frågorna över ID:na går därför genom IdListQueries.
+     */
+    @Transactional
+    public void refresh(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        Set<Long> ids = new HashSet<>(productIds);
+        List<Product> products = idListQueries.query(ids, productRepository::findAllById,
+                productRepository::findAllInQueryIds);
+        Map<Long, List<String>> tagNames = idListQueries.query(ids, productTagRepository::findTagNamesByProductIds,
+                        productTagRepository::findTagNamesInQueryIds).stream()
+                .collect(Collectors.groupingBy(ProductTagRepository.ProductTagName::getProductId,
+                        Collectors.mapping(ProductTagRepository.ProductTagName::getTagName, Collectors.toList())));
+        // Befintliga rader laddas först så att save uppdaterar dem utan en extra select per rad
+        Map<Long, ProductListing> existing = idListQueries.query(ids, productListingRepository::findAllById,
+                        productListingRepository::findAllInQueryIds).stream()
+                .collect(Collectors.toMap(ProductListing::getProductId, Function.identity()));
+
+        List<ProductListing> listings = new ArrayList<>(products.size());
+        for (Product product : products) {
+            ProductListing listing = existing.remove(product.getId());
+            if (listing == null) {
+                listing = ProductListing.builder().productId(product.getId()).build();
+            }
+            listing.setName(product.getName());
+            listing.setCategoryName(product.getCategory().getName());
+            listing.setPrice(product.getPrice());
+            listing.setStockQuantity(product.getStockQuantity());
+            listing.setTagNames(tagNames.getOrDefault(product.getId(), new ArrayList<>()));
+            listings.add(listing);
+        }
+        productListingRepository.saveAll(listings);
+        productListingRepository.deleteAll(existing.values());
+        log.debug("refresh – läsmodell uppdaterad för {} produkter, {} borttagna", listings.size(), existing.size());
+    }
+
+    @Transactional
+    public void refresh(Long productId) {
+        refresh(List.of(productId));
+    }
+}
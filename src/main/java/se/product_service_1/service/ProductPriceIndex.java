@@ -0,0 +1,175 @@
+package se.product_service_1.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import se.product_service_1.config.ReadRouting;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Prisindexet för alla produkter i alla shards (se PriceIndex), för sökningar på prisintervall
+ * sorterade på pris. Byggs från products vid start och sedan med jämna mellanrum; mellan
+ * byggena uppdateras det efter commit av varje prisändring som görs i den här instansen.
+ * Ändringar från andra instanser syns efter nästa bygge.
+ * <p>
+ * En commit lägger bara ändringen i en kö. Kön läggs på indexet i ett svep av nästa läsare, så
+ * en skur av ändringar mellan två sökningar kopierar indexet en gång.
+ * <p>
+ * Tills första bygget är klart finns inget index och sökningarna går mot databasen.
+ */
+@Component
+public class ProductPriceIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductPriceIndex.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+    private final boolean enabled;
+
+    // Lås i stället för synchronized, så att virtuella trådar inte låser sin bärartråd
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile PriceIndex index;
+    // Ändringar som inte lagts på indexet än, null = borttagen
+    private final Map<Long, Double> pending = new LinkedHashMap<>();
+    private volatile boolean hasPending;
+    // Ändringar under ett pågående bygge; läggs på det nya indexet innan det byts in
+    private Map<Long, Double> changedDuringRebuild;
+
+    public ProductPriceIndex(JdbcTemplate jdbcTemplate, ShardRouter shardRouter,
+                             @Value("${catalog.price-index.enabled:true}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardRouter = shardRouter;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Aktuellt index, eller null om det är avstängt eller inte byggt än.
+     */
+    public PriceIndex snapshot() {
+        if (hasPending) {
+            lock.lock();
+            try {
+                PriceIndex current = index;
+                if (current != null && !pending.isEmpty()) {
+                    index = current.withChanges(pending);
+                }
+                pending.clear();
+                hasPending = false;
+            } finally {
+                lock.unlock();
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Sätter produktens pris i indexet; inom en transaktion först efter commit.
+     */
+    public void put(Long productId, double price) {
+        afterCommit(() -> apply(productId, price));
+    }
+
+    public void remove(Long productId) {
+        afterCommit(() -> apply(productId, null));
+    }
+
+    @Scheduled(initialDelayString = "${catalog.price-index.initial-delay:PT0S}",
+            fixedDelayString = "${catalog.price-index.rebuild-interval:PT5M}")
+    public void scheduledRebuild() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Läser alla shards priser och byter in det nya indexet.
+     */
+    public void rebuild() {
+        lock.lock();
+        try {
+            if (changedDuringRebuild != null) {
+                return;
+            }
+            changedDuringRebuild = new LinkedHashMap<>();
+        } finally {
+            lock.unlock();
+        }
+
+        long start = System.nanoTime();
+        PriceIndex loaded = null;
+        try {
+            // Från primären: en replik som ligger efter skulle skriva över nyare priser
+            loaded = ReadRouting.onPrimary(() -> shardRouter.scatter(shard -> List.of(loadShard())))
+                    .stream()
+                    .reduce(PriceIndex::merge)
+                    .orElse(PriceIndex.empty());
+        } catch (RuntimeException ex) {
+            log.warn("Prisindexet kunde inte byggas", ex);
+        } finally {
+            lock.lock();
+            try {
+                if (loaded != null) {
+                    loaded = loaded.withChanges(changedDuringRebuild);
+                    index = loaded;
+                    // Det som låg i kön före bygget finns i databasen, resten i changedDuringRebuild
+                    pending.clear();
+                    hasPending = false;
+                }
+                changedDuringRebuild = null;
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (loaded != null) {
+            log.debug("Prisindex byggt: {} produkter på {} ms", loaded.size(), (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private PriceIndex loadShard() {
+        PriceIndex.Builder builder = new PriceIndex.Builder();
+        jdbcTemplate.query("select id, price from products order by price, id",
+                (RowCallbackHandler) rs -> builder.add(rs.getLong(1), rs.getDouble(2)));
+        return builder.build();
+    }
+
+    private void apply(Long productId, Double price) {
+        lock.lock();
+        try {
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.put(productId, price);
+            }
+            if (index != null) {
+                pending.put(productId, price);
+                hasPending = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void afterCommit(Runnable change) {
+        if (!enabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+}
@@ -2,57 +2,104 @@ package se.product_service_1.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import se.product_service_1.dto.InventoryManagementRequest;
 import se.product_service_1.dto.InventoryManagementRequest.InventoryChange;
+import se.product_service_1.dto.ProductResponse;
 import se.product_service_1.dto.ProductSearchRequest;
+import se.product_service_1.exception.BadRequestException;
 import se.product_service_1.exception.NotEnoughStockException;
 import se.product_service_1.exception.ProductAlreadyExistsException;
 import se.product_service_1.exception.ProductNotFoundException;
 import se.product_service_1.model.Product;
+import se.product_service_1.model.ProductListing;
 import se.product_service_1.model.ProductTag;
 import se.product_service_1.model.Tag;
 import se.product_service_1.repository.CategoryRepository;
+import se.product_service_1.repository.ProductListingRepository;
+import se.product_service_1.repository.ProductListingSpecifications;
 import se.product_service_1.repository.ProductRepository;
 import se.product_service_1.repository.ProductTagRepository;
 import se.product_service_1.repository.TagRepository;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 public class ProductService {
     private static final Logger log = LoggerFactory.getLogger(ProductService.class);
+    // Listfrågorna sorterar på produkt-ID; shardernas delar slås ihop i samma ordning
+    private static final Comparator<ProductResponse> BY_ID = Comparator.comparing(ProductResponse::getId);
+    private static final Sort ID_ORDER = Sort.by("productId");
+    private static final int MAX_SEARCH_PAGE_SIZE = 500;
+    // Djupare sidor kräver att varje shard läser och skickar alla träffar fram till sidan
+    private static final int MAX_SEARCH_RESULT_WINDOW = 10_000;
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
     private final TagService tagService;
     private final ProductTagRepository productTagRepository;
     private final TagRepository tagRepository;
+    private final FileStorageService fileStorageService;
+    private final CatalogResponseCache catalogResponseCache;
+    private final ProductListingRepository productListingRepository;
+    private final ProductListingWriter productListingWriter;
+    private final ShardRouter shardRouter;
+    private final IdListQueries idListQueries;
+    private final ProductPriceIndex productPriceIndex;
 
     public ProductService(ProductRepository productRepository, CategoryRepository categoryRepository,
-                          TagService tagService, ProductTagRepository productTagRepository, TagRepository tagRepository) {
+                          TagService tagService, ProductTagRepository productTagRepository, TagRepository tagRepository,
+                          FileStorageService fileStorageService, CatalogResponseCache catalogResponseCache,
+                          ProductListingRepository productListingRepository, ProductListingWriter productListingWriter,
+                          ShardRouter shardRouter, IdListQueries idListQueries,
+                          ProductPriceIndex productPriceIndex) {
         this.productRepository = productRepository;
         this.categoryRepository = categoryRepository;
         this.tagService = tagService;
         this.productTagRepository = productTagRepository;
         this.tagRepository = tagRepository;
+        this.fileStorageService = fileStorageService;
+        this.catalogResponseCache = catalogResponseCache;
+        this.productListingRepository = productListingRepository;
+        this.productListingWriter = productListingWriter;
+        this.shardRouter = shardRouter;
+        this.idListQueries = idListQueries;
+        this.productPriceIndex = productPriceIndex;
     }
 
+    @Transactional
     public Product addProduct(Product product) {
         log.info("addProduct – försök spara produkt: productName={}, category={}",
                 product.getName(), product.getCategory());
 
-        if (productRepository.findByName(product.getName()).isPresent()) {
+        if (productNameExists(product.getName())) {
             throw new ProductAlreadyExistsException("Produkt med namn " + product.getName() + " finns redan.");
         }
 
-        Product saved = productRepository.save(product);
-        log.info("addProduct – sparad produkt med productId={}", saved.getId());
-        return saved;
+        return shardRouter.onShard(shardRouter.shardForNewProduct(product.getName()), () -> {
+            Product saved = productRepository.save(product);
+            productListingWriter.refresh(saved.getId());
+            productPriceIndex.put(saved.getId(), saved.getPrice());
+            catalogResponseCache.invalidate();
+            log.info("addProduct – sparad produkt med productId={}", saved.getId());
+            return saved;
+        });
     }
 
     @Transactional
@@ -60,57 +107,84 @@ public class ProductService {
         log.info("addProductWithTags – försök spara produkt med taggar: productName={}, tags={}",
                 product.getName(), tagNames);
 
-        if (productRepository.findByName(product.getName()).isPresent()) {
+        if (productNameExists(product.getName())) {
             throw new ProductAlreadyExistsException("Produkt med namn " + product.getName() + " finns redan.");
         }
 
-        // Spara produkten först
-        Product saved = productRepository.save(product);
+        return shardRouter.onShard(shardRouter.shardForNewProduct(product.getName()), () -> {
+            // Spara produkten först
+            Product saved = productRepository.save(product);
+
+            // Hantera taggar
+            if (tagNames != null && !tagNames.isEmpty()) {
+                Set<Tag> tags = tagService.getOrCreateTags(tagNames);
+
+                // Skapa ProductTag-kopplingar
+                for (Tag tag : tags) {
+                    ProductTag productTag = ProductTag.builder()
+                            .productId(saved.getId())
+                            .tagId(tag.getId())
+                            .build();
+                    productTagRepository.save(productTag);
+                }
+            }
 
-        // Hantera taggar
-        if (tagNames != null && !tagNames.isEmpty()) {
-            Set<Tag> tags = tagService.getOrCreateTags(tagNames);
+            productListingWriter.refresh(saved.getId());
+            productPriceIndex.put(saved.getId(), saved.getPrice());
+            catalogResponseCache.invalidate();
+            log.info("addProductWithTags – sparad produkt med productId={} och {} taggar",
+                    saved.getId(), tagNames != null ? tagNames.size() : 0);
+            return saved;
+        });
+    }
 
-            // Skapa ProductTag-kopplingar
-            for (Tag tag : tags) {
-                ProductTag productTag = ProductTag.builder()
-                        .productId(saved.getId())
-                        .tagId(tag.getId())
-                        .build();
-                productTagRepository.save(productTag);
-            }
-        }
+    // Namnet är unikt per shard genom constrainten. En ny produkt placeras på namnets hash, så
+    // samtidiga skapanden av samma namn krockar i samma shard; över shards kontrolleras det här
+    private boolean productNameExists(String name) {
+        return shardRouter.anyShard(() -> productRepository.findByName(name).isPresent());
+    }
 
-        log.info("addProductWithTags – sparad produkt med productId={} och {} taggar",
-                saved.getId(), tagNames != null ? tagNames.size() : 0);
-        return saved;
+    private boolean productNameTakenByOther(String name, Long productId) {
+        return shardRouter.anyShard(() -> productRepository.findByName(name)
+                .filter(existing -> !existing.getId().equals(productId))
+                .isPresent());
     }
 
     @Transactional
     public void deleteProduct(Long productId) {
         log.info("deleteProduct – försök radera produktId={}", productId);
-        if (productRepository.existsById(productId)) {
-            // Ta bort alla ProductTag-kopplingar först
-            productTagRepository.deleteByProductId(productId);
-            // Ta bort produkten
-            productRepository.deleteById(productId);
-            log.info("deleteProduct – produkt raderad produktId={}", productId);
-        } else {
-            log.warn("deleteProduct – ingen produkt att radera för produktId={}", productId);
-        }
+        shardRouter.runOnShardOf(productId, () -> {
+            if (productRepository.existsById(productId)) {
+                // Ta bort alla ProductTag-kopplingar först
+                productTagRepository.deleteByProductId(productId);
+                // Ta bort bildposterna; filerna städas av UploadReconciler
+                fileStorageService.deleteImageRecordsForProduct(productId);
+                // Ta bort produkten
+                productRepository.deleteById(productId);
+                productListingWriter.refresh(productId);
+                productPriceIndex.remove(productId);
+                catalogResponseCache.invalidate();
+                log.info("deleteProduct – produkt raderad produktId={}", productId);
+            } else {
+                log.warn("deleteProduct – ingen produkt att radera för produktId={}", productId);
+            }
+        });
     }
 
+    @Transactional(readOnly = true)
     public Product getProductByName(String name) {
         log.info("getProductByName – hämtar produkt med namn {}", name);
-        return productRepository.findByName(name).orElseThrow(() -> {
+        List<Product> matches = shardRouter.scatter(shard -> productRepository.findByName(name).stream().toList());
+        return matches.stream().findFirst().orElseThrow(() -> {
             log.error("getProductByName – fel uppstod vid hämtning av produkt med namn: {}", name);
             return new ProductNotFoundException("Product med namn: " + name + " existerar inte.");
         });
     }
 
+    @Transactional(readOnly = true)
     public Product getProductById(Long productId) {
         log.debug("getProductById – hämta produkt produktId={}", productId);
-        Product product = productRepository.findById(productId)
+        Product product = shardRouter.onShardOf(productId, () -> productRepository.findById(productId))
                 .orElseThrow(() -> {
                     log.warn("getProductById – ingen produkt hittades för produktId={}", productId);
                     return new ProductNotFoundException("Produkt med ID " + productId + " finns inte.");
@@ -119,124 +193,305 @@ public class ProductService {
         return product;
     }
 
+    @Transactional(readOnly = true)
     public List<Product> getAllProducts() {
         log.debug("getAllProducts – hämta alla produkter");
-        List<Product> list = productRepository.findAll();
+        List<Product> list = shardRouter.scatter(shard -> productRepository.findAll());
         log.debug("getAllProducts – antal produkter={}", list.size());
         return list;
     }
 
+    /**
+     * Alla produkter ur läsmodellen, projicerade direkt till svaret. Med sharding hämtas varje
+     * shards del parallellt och slås ihop i ID-ordning.
+     */
+    @Transactional(readOnly = true)
+    public List<ProductResponse> getAllProductResponses() {
+        return shardRouter.scatterSorted(shard -> productListingRepository.findAllResponses(), BY_ID);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ProductResponse> getProductResponsesByCategory(String categoryName) {
+        return shardRouter.scatterSorted(shard -> productListingRepository.findResponsesByCategoryName(categoryName), BY_ID);
+    }
+
+    @Transactional(readOnly = true)
     public List<String> getTagNamesForProduct(Long productId) {
-        List<Long> tagIds = productTagRepository.findTagIdsByProductId(productId);
-        List<Tag> tags = tagRepository.findAllById(tagIds);
-        return tags.stream().map(Tag::getName).collect(Collectors.toList());
+        return getTagNamesForProducts(List.of(productId)).getOrDefault(productId, new ArrayList<>());
     }
 
+    /**
+     * Taggnamn för flera produkter med en enda fråga, så att listendpoints inte gör
+     * en fråga per produkt. Produkter utan taggar saknas i resultatet.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, List<String>> getTagNamesForProducts(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return new HashMap<>();
+        }
+        return shardRouter.scatterByProductIds(productIds, ids -> idListQueries.query(ids,
+                        productTagRepository::findTagNamesByProductIds, productTagRepository::findTagNamesInQueryIds))
+                .stream()
+                .collect(Collectors.groupingBy(ProductTagRepository.ProductTagName::getProductId,
+                        Collectors.mapping(ProductTagRepository.ProductTagName::getTagName, Collectors.toList())));
+    }
+
+    @Transactional(readOnly = true)
     public List<Product> getProductsByCategory(String categoryName) {
-        return productRepository.findByCategoryName(categoryName);
+        return shardRouter.scatter(shard -> productRepository.findByCategoryName(categoryName));
+    }
+
+    /**
+     * Om kategorin har någon produkt, utan att ladda produkterna.
+     */
+    @Transactional(readOnly = true)
+    public boolean hasProductsInCategory(String categoryName) {
+        return shardRouter.anyShard(() -> productRepository.existsByCategoryName(categoryName));
     }
 
+    /**
+     * Sparar ändringarna. Ett nytt namn får inte finnas på någon annan produkt i någon shard.
+     * Produkten ligger kvar på sin shard vid namnbyte (ID:t avgör sharden), så constrainten i
+     * den nya namnets shard skyddar inte mot ett samtidigt skapande av samma namn.
+     */
+    @Transactional
     public Product updateProduct(Product product) {
-        Product updatedProduct = productRepository.save(product);
-        return updatedProduct;
+        if (productNameTakenByOther(product.getName(), product.getId())) {
+            throw new ProductAlreadyExistsException("Produkt med namn " + product.getName() + " finns redan.");
+        }
+        return shardRouter.onShardOf(product.getId(), () -> {
+            Product updatedProduct = productRepository.save(product);
+            productListingWriter.refresh(updatedProduct.getId());
+            productPriceIndex.put(updatedProduct.getId(), updatedProduct.getPrice());
+            catalogResponseCache.invalidate();
+            return updatedProduct;
+        });
     }
 
     // === NYA SÖKFUNKTIONER FÖR TAGGAR ===
 
-    public List<Product> searchProductsByTags(List<String> tagNames) {
+    @Transactional(readOnly = true)
+    public List<ProductResponse> searchProductsByTags(List<String> tagNames) {
         log.info("searchProductsByTags – söker produkter med taggar: {}", tagNames);
         if (tagNames == null || tagNames.isEmpty()) {
             return new ArrayList<>();
         }
-
-        // Hitta tag-IDs baserat på namn
-        List<Tag> tags = tagNames.stream()
-                .map(name -> tagRepository.findByName(name))
-                .filter(opt -> opt.isPresent())
-                .map(opt -> opt.get())
-                .collect(Collectors.toList());
-
-        if (tags.isEmpty()) {
-            return new ArrayList<>();
-        }
-
-        List<Long> tagIds = tags.stream().map(Tag::getId).collect(Collectors.toList());
-        List<Long> productIds = productTagRepository.findProductIdsByTagIds(tagIds);
-
-        return productRepository.findAllById(productIds);
+        return findResponses(ProductListingSpecifications.hasAnyTag(tagNames), Pageable.unpaged(ID_ORDER), BY_ID);
     }
 
-    public List<Product> searchProductsByAllTags(List<String> tagNames) {
+    @Transactional(readOnly = true)
+    public List<ProductResponse> searchProductsByAllTags(List<String> tagNames) {
         log.info("searchProductsByAllTags – söker produkter som har ALLA taggar: {}", tagNames);
         if (tagNames == null || tagNames.isEmpty()) {
             return new ArrayList<>();
         }
-
-        // Denna implementation kräver mer komplex logik - returnera tom för nu
-        return new ArrayList<>();
+        return findResponses(ProductListingSpecifications.hasAllTags(tagNames), Pageable.unpaged(ID_ORDER), BY_ID);
     }
 
-    public List<Product> searchProductsByTagPattern(String tagPattern) {
+    @Transactional(readOnly = true)
+    public List<ProductResponse> searchProductsByTagPattern(String tagPattern) {
         log.info("searchProductsByTagPattern – söker produkter med tagg-mönster: {}", tagPattern);
-        List<Tag> tags = tagRepository.findByNameContainingIgnoreCase(tagPattern);
-        List<Long> tagIds = tags.stream().map(Tag::getId).collect(Collectors.toList());
+        return findResponses(ProductListingSpecifications.hasTagMatching(tagPattern), Pageable.unpaged(ID_ORDER), BY_ID);
+    }
 
-        if (tagIds.isEmpty()) {
-            return new ArrayList<>();
+    /**
+     * Alla kriterier i sökningen gäller samtidigt och körs som en fråga mot läsmodellen, med
+     * sortering och sidindelning i databasen. Med sharding hämtar varje shard de första
+     * (page + 1) * size träffarna, som slås ihop i sorteringsordning innan sidan plockas ut.
+     * En sida av ett prisintervall sorterat på pris, utan andra kriterier, tas ur prisindexet.
+     */
+    @Transactional(readOnly = true)
+    public List<ProductResponse> searchProducts(ProductSearchRequest searchRequest) {
+        log.info("searchProducts – avancerad sökning: {}", searchRequest);
+
+        SortField sortField = sortField(searchRequest.getSortBy());
+        boolean descending = descending(searchRequest.getSortDirection());
+        Sort sort = sortField.sort;
+        Comparator<ProductResponse> order = sortField.order;
+        // Produkt-ID som andra nyckel ger en stabil ordning mellan sidorna; fallande är omvänt stigande
+        if (sortField != SortField.ID) {
+            sort = sort.and(ID_ORDER);
+            order = order.thenComparing(BY_ID);
+        }
+        if (descending) {
+            sort = sort.reverse();
+            order = order.reversed();
         }
 
-        List<Long> productIds = productTagRepository.findProductIdsByTagIds(tagIds);
-        return productRepository.findAllById(productIds);
+        Pageable pageable = pageable(searchRequest.getPage(), searchRequest.getSize(), sort);
+        if (pageable.isPaged() && sortField == SortField.PRICE && onlyPriceCriteria(searchRequest)) {
+            PriceIndex index = productPriceIndex.snapshot();
+            if (index != null) {
+                Optional<List<ProductResponse>> page = findPriceRangePage(index, searchRequest, pageable, descending, order);
+                if (page.isPresent()) {
+                    return page.get();
+                }
+            }
+        }
+        return findResponses(searchSpecification(searchRequest), pageable, order);
     }
 
-    public List<Product> searchProducts(ProductSearchRequest searchRequest) {
-        log.info("searchProducts – avancerad sökning: {}", searchRequest);
+    private static boolean onlyPriceCriteria(ProductSearchRequest searchRequest) {
+        return searchRequest.getCategoryName() == null
+                && (searchRequest.getTagNames() == null || searchRequest.getTagNames().isEmpty())
+                && (searchRequest.getSearchTerm() == null || searchRequest.getSearchTerm().trim().isEmpty())
+                && !searchRequest.isInStockOnly();
+    }
 
-        // Om endast taggar är specificerade
-        if (searchRequest.getTagNames() != null && !searchRequest.getTagNames().isEmpty()) {
-            if (searchRequest.isRequireAllTags()) {
-                return searchProductsByAllTags(searchRequest.getTagNames());
-            } else {
-                return searchProductsByTags(searchRequest.getTagNames());
+    /**
+     * Sidans produkt-ID:n ur prisindexet; bara de hämtas från läsmodellen, i indexets ordning.
+     * Raderna kontrolleras mot intervallet och ordningen med sina aktuella priser. Ligger indexet
+     * efter (produkten raderad eller prisändrad i en annan instans) returneras inget och
+     * sidan tas från databasen i stället.
+     */
+    private Optional<List<ProductResponse>> findPriceRangePage(PriceIndex index, ProductSearchRequest searchRequest,
+                                                               Pageable pageable, boolean descending,
+                                                               Comparator<ProductResponse> order) {
+        double minPrice = searchRequest.getMinPrice() != null ? searchRequest.getMinPrice() : Double.NEGATIVE_INFINITY;
+        double maxPrice = searchRequest.getMaxPrice() != null ? searchRequest.getMaxPrice() : Double.POSITIVE_INFINITY;
+        long[] ids = new long[pageable.getPageSize()];
+        int count = index.page(minPrice, maxPrice, Math.toIntExact(pageable.getOffset()), descending, ids);
+        if (count == 0) {
+            return Optional.of(new ArrayList<>());
+        }
+        List<Long> pageIds = Arrays.stream(ids, 0, count).boxed().toList();
+        Map<Long, ProductResponse> responses = shardRouter.scatterByProductIds(pageIds,
+                        productListingRepository::findResponsesByProductIds).stream()
+                .collect(Collectors.toMap(ProductResponse::getId, Function.identity()));
+        List<ProductResponse> page = new ArrayList<>(count);
+        for (Long productId : pageIds) {
+            ProductResponse response = responses.get(productId);
+            if (response == null || response.getPrice() < minPrice || response.getPrice() > maxPrice
+                    || (!page.isEmpty() && order.compare(page.get(page.size() - 1), response) > 0)) {
+                log.debug("searchProducts – prisindexet ligger efter för produktId={}, sidan hämtas från databasen", productId);
+                return Optional.empty();
             }
+            page.add(response);
         }
+        return Optional.of(page);
+    }
 
-        // Om sökterm för taggar är specificerad
+    /**
+     * Kriterierna i ordning efter hur billigt de gallrar bort rader: kategorin via sitt index,
+     * pris och lager på den redan lästa raden, de exakta taggarna via tagg-indexet och sist
+     * taggmönstret, vars LIKE måste jämföras mot namnet på varje tagg produkten har.
+     */
+    private static Specification<ProductListing> searchSpecification(ProductSearchRequest searchRequest) {
+        List<Specification<ProductListing>> criteria = new ArrayList<>();
+        if (searchRequest.getCategoryName() != null) {
+            criteria.add(ProductListingSpecifications.inCategory(searchRequest.getCategoryName()));
+        }
+        if (searchRequest.getMinPrice() != null) {
+            criteria.add(ProductListingSpecifications.priceAtLeast(searchRequest.getMinPrice()));
+        }
+        if (searchRequest.getMaxPrice() != null) {
+            criteria.add(ProductListingSpecifications.priceAtMost(searchRequest.getMaxPrice()));
+        }
+        if (searchRequest.isInStockOnly()) {
+            criteria.add(ProductListingSpecifications.inStock());
+        }
+        if (searchRequest.getTagNames() != null && !searchRequest.getTagNames().isEmpty()) {
+            criteria.add(searchRequest.isRequireAllTags()
+                    ? ProductListingSpecifications.hasAllTags(searchRequest.getTagNames())
+                    : ProductListingSpecifications.hasAnyTag(searchRequest.getTagNames()));
+        }
         if (searchRequest.getSearchTerm() != null && !searchRequest.getSearchTerm().trim().isEmpty()) {
-            return searchProductsByTagPattern(searchRequest.getSearchTerm());
+            criteria.add(ProductListingSpecifications.hasTagMatching(searchRequest.getSearchTerm().trim()));
         }
+        return Specification.allOf(criteria);
+    }
 
-        // Om endast kategori är specificerad
-        if (searchRequest.getCategoryName() != null) {
-            return getProductsByCategory(searchRequest.getCategoryName());
+    private List<ProductResponse> findResponses(Specification<ProductListing> specification, Pageable pageable,
+                                                Comparator<ProductResponse> order) {
+        if (!shardRouter.isSharded() || pageable.isUnpaged()) {
+            return shardRouter.scatterSorted(shard -> productListingRepository.findResponses(specification, pageable), order);
         }
+        // Sidan kan ligga var som helst bland shardernas träffar; varje shard bidrar med högst offset + size
+        int offset = Math.toIntExact(pageable.getOffset());
+        Pageable head = PageRequest.of(0, offset + pageable.getPageSize(), pageable.getSort());
+        List<ProductResponse> merged = shardRouter.scatterSorted(
+                shard -> productListingRepository.findResponses(specification, head), order);
+        return new ArrayList<>(merged.subList(Math.min(offset, merged.size()),
+                Math.min(offset + pageable.getPageSize(), merged.size())));
+    }
 
-        // Ingen specifik sökning - returnera alla produkter
-        return getAllProducts();
+    private static SortField sortField(String sortBy) {
+        if (sortBy == null || sortBy.isBlank()) {
+            return SortField.ID;
+        }
+        for (SortField field : SortField.values()) {
+            if (field.parameter.equals(sortBy)) {
+                return field;
+            }
+        }
+        throw new BadRequestException("Unknown sort field: " + sortBy + ", expected id, name, price or stockQuantity");
+    }
+
+    private static boolean descending(String sortDirection) {
+        if (sortDirection == null || sortDirection.isBlank()) {
+            return false;
+        }
+        return Sort.Direction.fromOptionalString(sortDirection)
+                .orElseThrow(() -> new BadRequestException("Unknown sort direction: " + sortDirection))
+                .isDescending();
+    }
+
+    private static Pageable pageable(Integer page, Integer size, Sort sort) {
+        if (size == null) {
+            return Pageable.unpaged(sort);
+        }
+        int pageNumber = page != null ? page : 0;
+        if (size < 1 || size > MAX_SEARCH_PAGE_SIZE) {
+            throw new BadRequestException("Page size must be between 1 and " + MAX_SEARCH_PAGE_SIZE);
+        }
+        if (pageNumber < 0 || (long) (pageNumber + 1) * size > MAX_SEARCH_RESULT_WINDOW) {
+            throw new BadRequestException("Page must be between 0 and the first " + MAX_SEARCH_RESULT_WINDOW + " results");
+        }
+        return PageRequest.of(pageNumber, size, sort);
+    }
+
+    // Sorteringsfälten i sökningen: parameternamnet, attributet i läsmodellen och samma ordning i minnet
+    private enum SortField {
+        ID("id", "productId", BY_ID),
+        NAME("name", "name", Comparator.comparing(ProductResponse::getProductName)),
+        PRICE("price", "price", Comparator.comparing(ProductResponse::getPrice)),
+        STOCK_QUANTITY("stockQuantity", "stockQuantity", Comparator.comparingInt(ProductResponse::getStockQuantity));
+
+        private final String parameter;
+        private final Sort sort;
+        private final Comparator<ProductResponse> order;
+
+        SortField(String parameter, String attribute, Comparator<ProductResponse> order) {
+            this.parameter = parameter;
+            this.sort = Sort.by(attribute);
+            this.order = order;
+        }
     }
 
     @Transactional
     public Product addTagsToProduct(Long productId, List<String> tagNames) {
         log.info("addTagsToProduct – lägger till taggar {} till produkt {}", tagNames, productId);
+        return shardRouter.onShardOf(productId, () -> addTags(productId, tagNames));
+    }
 
+    private Product addTags(Long productId, List<String> tagNames) {
         Product product = getProductById(productId);
         Set<Tag> newTags = tagService.getOrCreateTags(tagNames);
 
-        // Skapa nya ProductTag-kopplingar
+        // Befintliga kopplingar hämtas en gång, inte per tagg
+        Set<Long> existingTagIds = new HashSet<>(productTagRepository.findTagIdsByProductId(productId));
+        List<ProductTag> newLinks = new ArrayList<>();
         for (Tag tag : newTags) {
-            // Kontrollera om kopplingen redan finns
-            List<ProductTag> existing = productTagRepository.findByProductId(productId);
-            boolean alreadyExists = existing.stream()
-                    .anyMatch(pt -> pt.getTagId().equals(tag.getId()));
-
-            if (!alreadyExists) {
-                ProductTag productTag = ProductTag.builder()
+            if (existingTagIds.add(tag.getId())) {
+                newLinks.add(ProductTag.builder()
                         .productId(productId)
                         .tagId(tag.getId())
-                        .build();
-                productTagRepository.save(productTag);
+                        .build());
             }
         }
+        productTagRepository.saveAll(newLinks);
+        productListingWriter.refresh(productId);
+        catalogResponseCache.invalidate();
 
         return product;
     }
@@ -245,25 +500,73 @@ public class ProductService {
     public Product removeTagsFromProduct(Long productId, List<String> tagNames) {
         log.info("removeTagsFromProduct – tar bort taggar {} från produkt {}", tagNames, productId);
 
-        Product product = getProductById(productId);
+        return shardRouter.onShardOf(productId, () -> {
+            Product product = getProductById(productId);
 
-        // Hitta tag-IDs baserat på namn
-        for (String tagName : tagNames) {
-            tagRepository.findByName(tagName).ifPresent(tag -> {
-                productTagRepository.deleteByProductIdAndTagId(productId, tag.getId());
-            });
-        }
+            // Hitta tag-IDs baserat på namn
+            for (String tagName : tagNames) {
+                tagRepository.findByName(tagName).ifPresent(tag -> {
+                    productTagRepository.deleteByProductIdAndTagId(productId, tag.getId());
+                });
+            }
+            productListingWriter.refresh(productId);
+            catalogResponseCache.invalidate();
 
-        return product;
+            return product;
+        });
     }
 
+    /**
+     * Lagerändringar för produkter i samma shard görs i en transaktion. Spänner ändringen över
+     * flera shards öppnas en transaktion per shard, nästlade i shardordning: varje shard låser och
+     * kontrollerar sina rader innan nästa öppnas, och ingen shard committas förrän alla har
+     * kontrollerats. Saknas lager i någon shard rullas alla tillbaka.
+     */
     @Transactional
     public List<Product> updateInventoryChange(InventoryManagementRequest inventoryManagementRequest) {
         List<InventoryChange> inventoryChanges = inventoryManagementRequest.getInventoryChanges();
+        // Shardordning, så att två samtidiga ändringar över samma shards inte låser varandra
+        Map<Integer, List<InventoryChange>> changesByShard = inventoryChanges.stream()
+                .collect(Collectors.groupingBy(change -> shardRouter.shardOf(change.getProductId()),
+                        TreeMap::new, Collectors.toList()));
+        List<Product> productList = new ArrayList<>(inventoryChanges.size());
+        if (changesByShard.size() == 1) {
+            changesByShard.forEach((shard, changes) ->
+                    productList.addAll(shardRouter.onShard(shard, () -> applyInventoryChanges(changes))));
+        } else {
+            applyInventoryChangesFrom(new ArrayList<>(changesByShard.entrySet()), 0, productList);
+        }
+        return productList;
+    }
+
+    // Shardernas transaktioner nästlas: den innersta committas först, men först när alla är kontrollerade
+    private void applyInventoryChangesFrom(List<Map.Entry<Integer, List<InventoryChange>>> shards, int index,
+                                           List<Product> productList) {
+        if (index == shards.size()) {
+            return;
+        }
+        Map.Entry<Integer, List<InventoryChange>> shard = shards.get(index);
+        shardRouter.inTransactionOn(shard.getKey(), () -> {
+            productList.addAll(applyInventoryChanges(shard.getValue()));
+            applyInventoryChangesFrom(shards, index + 1, productList);
+            return null;
+        });
+    }
+
+    private List<Product> applyInventoryChanges(List<InventoryChange> inventoryChanges) {
+        // Alla rader låses innan något ändras, så att lagret inte kan ändras mellan kontroll och commit
+        Map<Long, Product> products = productRepository.findAllByIdForUpdate(inventoryChanges.stream()
+                        .map(InventoryChange::getProductId)
+                        .collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
         List<Product> productList = new ArrayList<>(inventoryChanges.size());
-        Product product;
         for (InventoryChange change : inventoryChanges) {
-            product = getProductById(change.getProductId());
+            Product product = products.get(change.getProductId());
+            if (product == null) {
+                log.warn("updateInventoryChange – ingen produkt hittades för produktId={}", change.getProductId());
+                throw new ProductNotFoundException("Produkt med ID " + change.getProductId() + " finns inte.");
+            }
             int newStockQuantity = product.getStockQuantity() + change.getInventoryChange();
             if (newStockQuantity < 0) {
                 throw new NotEnoughStockException("Not enough stock of " + product.getName() + ". Stock quantity: " + product.getStockQuantity());
@@ -272,6 +575,9 @@ public class ProductService {
             productRepository.save(product);
             productList.add(product);
         }
+        productListingWriter.refresh(productList.stream().map(Product::getId).collect(Collectors.toList()));
+        // Efter commit av just den här shardens transaktion
+        catalogResponseCache.invalidate();
         return productList;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,28 @@
+package se.product_service_1.service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enkel pacing för bakgrundsjobb: sover så att högst permitsPerSecond förbrukas per sekund.
+ * Inte trådsäker; varje jobb äger sin egen instans. 0 betyder obegränsat.
+ */
+final class RatePacer {
+
+    private final long nanosPerPermit;
+    private long nextFreeAt = System.nanoTime();
+
+    RatePacer(double permitsPerSecond) {
+        this.nanosPerPermit = permitsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond) : 0;
+    }
+
+    void acquire(int permits) throws InterruptedException {
+        if (nanosPerPermit == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (nextFreeAt > now) {
+            TimeUnit.NANOSECONDS.sleep(nextFreeAt - now);
+        }
+        nextFreeAt = Math.max(nextFreeAt, now) + permits * nanosPerPermit;
+    }
+}
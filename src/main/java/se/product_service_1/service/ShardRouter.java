@@ -0,0 +1,432 @@
+package se.product_service_1.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import se.product_service_1.config.ShardRouting;
+import se.product_service_1.config.ShardingConfig.ShardDataSources;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Tjänsternas väg till rätt shard (se ShardingConfig). Enproduktsoperationer körs på produktens
+ * shard, listor och sökningar körs parallellt på alla shards i varsin läsande transaktion och
+ * slås ihop. categories och tags skapas på hemmasharden och kopieras till övriga. Kopieringen är
+ * idempotent och försöks igen vid fel; rader som ändå saknas kopieras av reconcile(), som körs
+ * vid start och sedan med jämna mellanrum.
+ * <p>
+ * Utan sharding finns en shard och allt körs direkt i anroparens tråd och transaktion, precis
+ * som utan routern.
+ * <p>
+ * En transaktion kan bara använda en shard: den som är satt när transaktionens första sats
+ * körs. Routningen måste därför ske innan något annat i transaktionen läser från databasen.
+ */
+@Component
+public class ShardRouter implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardRouter.class);
+
+    private static final int HOME = 0;
+    private static final int REPLICATE_ATTEMPTS = 3;
+    private static final long REPLICATE_BACKOFF_MILLIS = 100;
+
+    // Replikerade tabeller och deras kolumner; första kolumnen är ID:t
+    private static final Map<String, List<String>> REPLICATED_TABLES = Map.of(
+            "categories", List.of("id", "name"),
+            "tags", List.of("id", "name", "description"));
+
+    private final int shardCount;
+    private final long idRangeSize;
+    private final JdbcTemplate home;
+    private final List<JdbcTemplate> replicas;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TransactionTemplate newTransaction;
+    private final ExecutorService executor;
+
+    public ShardRouter(ObjectProvider<ShardDataSources> shardDataSources,
+                       ObjectProvider<PlatformTransactionManager> transactionManager) {
+        ShardDataSources shards = shardDataSources.getIfAvailable();
+        if (shards == null || shards.count() == 1) {
+            this.shardCount = 1;
+            this.idRangeSize = Long.MAX_VALUE;
+            this.home = null;
+            this.replicas = List.of();
+            this.readOnlyTransaction = null;
+            this.newTransaction = null;
+            this.executor = null;
+            return;
+        }
+        this.shardCount = shards.count();
+        this.idRangeSize = shards.idRangeSize();
+        this.home = new JdbcTemplate(shards.get(HOME));
+        List<JdbcTemplate> replicas = new ArrayList<>();
+        for (int shard = 1; shard < shardCount; shard++) {
+            replicas.add(new JdbcTemplate(shards.get(shard)));
+        }
+        this.replicas = List.copyOf(replicas);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager.getObject());
+        this.readOnlyTransaction.setReadOnly(true);
+        this.newTransaction = new TransactionTemplate(transactionManager.getObject());
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        // Varje shardfråga väntar mest på databasen; poolerna begränsar samtidigheten
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    /**
+     * En router utan sharding, för tester av tjänsterna.
+     */
+    static ShardRouter single() {
+        return new ShardRouter(new EmptyProvider<>(), new EmptyProvider<>());
+    }
+
+    public boolean isSharded() {
+        return shardCount > 1;
+    }
+
+    public int shardCount() {
+        return shardCount;
+    }
+
+    /**
+     * Sharden som äger produkt-ID:t.
+     */
+    public int shardOf(Long productId) {
+        if (!isSharded()) {
+            return HOME;
+        }
+        long shard = (productId - 1) / idRangeSize;
+        return (int) Math.max(0, Math.min(shardCount - 1, shard));
+    }
+
+    /**
+     * Sharden en ny produkt skapas på; dess ID hamnar sedan i shardens intervall.
+     */
+    public int shardForNewProduct(String productName) {
+        return isSharded() ? Math.floorMod(productName.hashCode(), shardCount) : HOME;
+    }
+
+    /**
+     * Kör action på produktens shard, i anroparens transaktion.
+     */
+    public <T> T onShardOf(Long productId, Supplier<T> action) {
+        return onShard(shardOf(productId), action);
+    }
+
+    public void runOnShardOf(Long productId, Runnable action) {
+        onShardOf(productId, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Kör action på shard, i anroparens transaktion.
+     */
+    public <T> T onShard(int shard, Supplier<T> action) {
+        return isSharded() ? ShardRouting.onShard(shard, action) : action.get();
+    }
+
+    /**
+     * Kör action i en egen transaktion på shard. Används när en operation skriver till flera
+     * shards; varje shard committas för sig. Utan sharding körs action i anroparens transaktion.
+     */
+    public <T> T inTransactionOn(int shard, Supplier<T> action) {
+        if (!isSharded()) {
+            return action.get();
+        }
+        return ShardRouting.onShard(shard, () -> newTransaction.execute(status -> action.get()));
+    }
+
+    /**
+     * Skapar en rad i en replikerad tabell (categories, tags) på hemmasharden, committad, så att
+     * den kan kopieras ut med {@link #replicate} även om anroparen är mitt i en transaktion på en
+     * annan shard.
+     */
+    public <T> T onHome(Supplier<T> action) {
+        return inTransactionOn(HOME, action);
+    }
+
+    /**
+     * Kopierar en ny rad i en replikerad tabell (categories, tags) till shard 1..N-1. Raden måste
+     * redan vara committad på hemmasharden; values är kolumnerna i REPLICATED_TABLES ordning, med
+     * ID:t först. En shard som redan har raden lämnas orörd. Misslyckas kopieringen till en shard
+     * efter alla försök loggas det, och raden kopieras av nästa reconcile().
+     */
+    public void replicate(String table, Object... values) {
+        String insert = insertIfMissing(table);
+        Object[] args = insertArgs(values);
+        for (int shard = 1; shard < shardCount; shard++) {
+            JdbcTemplate replica = replicas.get(shard - 1);
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    replica.update(insert, args);
+                    break;
+                } catch (DataAccessException ex) {
+                    if (attempt == REPLICATE_ATTEMPTS) {
+                        log.error("replicate – {} med id={} kunde inte kopieras till shard {}; kopieras vid nästa avstämning",
+                                table, values[0], shard, ex);
+                        break;
+                    }
+                    log.warn("replicate – försök {} för {} med id={} till shard {} misslyckades: {}",
+                            attempt, table, values[0], shard, ex.getMessage());
+                    backOff(attempt);
+                }
+            }
+        }
+    }
+
+    /**
+     * Kopierar rader i de replikerade tabellerna som finns på hemmasharden men saknas på någon
+     * annan shard, t.ex. efter en replicate() som inte gick fram.
+     */
+    @Scheduled(initialDelayString = "${catalog.sharding.reconcile-initial-delay:PT0S}",
+            fixedDelayString = "${catalog.sharding.reconcile-interval:PT5M}")
+    public void reconcile() {
+        if (!isSharded()) {
+            return;
+        }
+        REPLICATED_TABLES.forEach((table, columns) -> {
+            List<Object[]> rows = home.query("select " + String.join(", ", columns) + " from " + table,
+                    (rs, rowNum) -> {
+                        Object[] values = new Object[columns.size()];
+                        for (int i = 0; i < values.length; i++) {
+                            values[i] = rs.getObject(i + 1);
+                        }
+                        return insertArgs(values);
+                    });
+            String insert = insertIfMissing(table);
+            for (int shard = 1; shard < shardCount; shard++) {
+                try {
+                    int copied = Arrays.stream(replicas.get(shard - 1).batchUpdate(insert, rows)).sum();
+                    if (copied > 0) {
+                        log.warn("reconcile – {} rader i {} saknades på shard {} och har kopierats", copied, table, shard);
+                    }
+                } catch (DataAccessException ex) {
+                    log.error("reconcile – {} kunde inte stämmas av mot shard {}", table, shard, ex);
+                }
+            }
+        });
+    }
+
+    // insert ... select ... where not exists: portabel och idempotent, till skillnad från merge/upsert
+    private static String insertIfMissing(String table) {
+        List<String> columns = REPLICATED_TABLES.get(table);
+        if (columns == null) {
+            throw new IllegalArgumentException("Not a replicated table: " + table);
+        }
+        String placeholders = String.join(", ", Collections.nCopies(columns.size(), "?"));
+        return "insert into " + table + " (" + String.join(", ", columns) + ") select " + placeholders +
+                " where not exists (select 1 from " + table + " where id = ?)";
+    }
+
+    // Kolumnvärdena följda av ID:t för not exists-villkoret
+    private static Object[] insertArgs(Object[] values) {
+        Object[] args = Arrays.copyOf(values, values.length + 1);
+        args[values.length] = values[0];
+        return args;
+    }
+
+    private static void backOff(int attempt) {
+        try {
+            Thread.sleep(REPLICATE_BACKOFF_MILLIS * attempt);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while replicating", ex);
+        }
+    }
+
+    /**
+     * Kör action på varje shard i tur och ordning, i en egen transaktion per shard.
+     */
+    public void forEachShard(IntFunction<?> action) {
+        if (!isSharded()) {
+            action.apply(HOME);
+            return;
+        }
+        for (int shard = 0; shard < shardCount; shard++) {
+            int current = shard;
+            inTransactionOn(current, () -> action.apply(current));
+        }
+    }
+
+    /**
+     * Kör query på alla shards parallellt, i en läsande transaktion per shard, och slår ihop
+     * resultaten i shardordning.
+     */
+    public <T> List<T> scatter(IntFunction<List<T>> query) {
+        if (!isSharded()) {
+            return query.apply(HOME);
+        }
+        List<Future<List<T>>> futures = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            int current = shard;
+            futures.add(executor.submit(() -> ShardRouting.onShard(current,
+                    () -> readOnlyTransaction.execute(status -> query.apply(current)))));
+        }
+        List<List<T>> results = gather(futures);
+        List<T> merged = new ArrayList<>();
+        results.forEach(merged::addAll);
+        return merged;
+    }
+
+    /**
+     * Som {@link #scatter} för frågor vars resultat redan är sorterade per shard; resultaten
+     * slås ihop med bibehållen sortering.
+     */
+    public <T> List<T> scatterSorted(IntFunction<List<T>> query, Comparator<? super T> order) {
+        if (!isSharded()) {
+            return query.apply(HOME);
+        }
+        List<List<T>> perShard = new ArrayList<>(shardCount);
+        List<Future<List<T>>> futures = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            int current = shard;
+            futures.add(executor.submit(() -> ShardRouting.onShard(current,
+                    () -> readOnlyTransaction.execute(status -> query.apply(current)))));
+        }
+        perShard.addAll(gather(futures));
+        return mergeSorted(perShard, order);
+    }
+
+    /**
+     * Kör query en gång per shard som äger något av produkt-ID:na, med just den shardens ID:n.
+     */
+    public <T> List<T> scatterByProductIds(Collection<Long> productIds, Function<Collection<Long>, List<T>> query) {
+        if (!isSharded()) {
+            return query.apply(productIds);
+        }
+        Map<Integer, List<Long>> idsByShard = new LinkedHashMap<>();
+        for (Long productId : productIds) {
+            idsByShard.computeIfAbsent(shardOf(productId), shard -> new ArrayList<>()).add(productId);
+        }
+        List<Future<List<T>>> futures = new ArrayList<>(idsByShard.size());
+        for (Map.Entry<Integer, List<Long>> entry : idsByShard.entrySet()) {
+            futures.add(executor.submit(() -> ShardRouting.onShard(entry.getKey(),
+                    () -> readOnlyTransaction.execute(status -> query.apply(entry.getValue())))));
+        }
+        List<T> merged = new ArrayList<>();
+        gather(futures).forEach(merged::addAll);
+        return merged;
+    }
+
+    /**
+     * Om check är sann på någon shard.
+     */
+    public boolean anyShard(Supplier<Boolean> check) {
+        if (!isSharded()) {
+            return check.get();
+        }
+        return !scatter(shard -> check.get() ? List.of(Boolean.TRUE) : List.<Boolean>of()).isEmpty();
+    }
+
+    private static <T> List<List<T>> gather(List<Future<List<T>>> futures) {
+        List<List<T>> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<List<T>> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Interrupted while querying shards", ex);
+        } catch (ExecutionException ex) {
+            futures.forEach(future -> future.cancel(true));
+            if (ex.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Shard query failed", ex.getCause());
+        }
+        return results;
+    }
+
+    // k-vägs sammanslagning av listor som var för sig är sorterade
+    static <T> List<T> mergeSorted(List<List<T>> lists, Comparator<? super T> order) {
+        int total = 0;
+        PriorityQueue<Cursor<T>> heads = new PriorityQueue<>((a, b) -> order.compare(a.head(), b.head()));
+        for (List<T> list : lists) {
+            total += list.size();
+            if (!list.isEmpty()) {
+                heads.add(new Cursor<>(list));
+            }
+        }
+        List<T> merged = new ArrayList<>(total);
+        while (!heads.isEmpty()) {
+            Cursor<T> cursor = heads.poll();
+            merged.add(cursor.head());
+            if (cursor.advance()) {
+                heads.add(cursor);
+            }
+        }
+        return merged;
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private static final class Cursor<T> {
+        private final List<T> list;
+        private int index;
+
+        Cursor(List<T> list) {
+            this.list = list;
+        }
+
+        T head() {
+            return list.get(index);
+        }
+
+        boolean advance() {
+            return ++index < list.size();
+        }
+    }
+
+    private static final class EmptyProvider<T> implements ObjectProvider<T> {
+
+        @Override
+        public T getObject(Object... args) {
+            throw new IllegalStateException("No bean");
+        }
+
+        @Override
+        public T getIfAvailable() {
+            return null;
+        }
+
+        @Override
+        public T getIfUnique() {
+            return null;
+        }
+
+        @Override
+        public T getObject() {
+            throw new IllegalStateException("No bean");
+        }
+    }
+}
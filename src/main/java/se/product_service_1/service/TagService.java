@@ -3,41 +3,63 @@ package se.product_service_1.service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import se.product_service_1.dto.TagResponse;
 import se.product_service_1.exception.ResourceNotFoundException;
+import se.product_service_1.model.ProductTag;
 import se.product_service_1.model.Tag;
+import se.product_service_1.repository.ProductTagRepository;
 import se.product_service_1.repository.TagRepository;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 import java.util.Set;
 import java.util.HashSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class TagService {
 
     private static final Logger log = LoggerFactory.getLogger(TagService.class);
     private final TagRepository tagRepository;
-
-    public TagService(TagRepository tagRepository) {
+    private final CatalogResponseCache catalogResponseCache;
+    private final ProductTagRepository productTagRepository;
+    private final ProductListingWriter productListingWriter;
+    private final ShardRouter shardRouter;
+
+    public TagService(TagRepository tagRepository, CatalogResponseCache catalogResponseCache,
+                      ProductTagRepository productTagRepository, ProductListingWriter productListingWriter,
+                      ShardRouter shardRouter) {
         this.tagRepository = tagRepository;
+        this.catalogResponseCache = catalogResponseCache;
+        this.productTagRepository = productTagRepository;
+        this.productListingWriter = productListingWriter;
+        this.shardRouter = shardRouter;
     }
 
-    public List<Tag> getAllTags() {
-        log.debug("getAllTags - hämta alla taggar");
-        List<Tag> tags = tagRepository.findAll();
-        log.debug("getAllTags - antal taggar={}", tags.size());
+    @Transactional(readOnly = true)
+    public List<TagResponse> getAllTagResponses() {
+        log.debug("getAllTagResponses - hämta alla taggar");
+        List<TagResponse> tags = sumProductCounts(shardRouter.scatter(shard -> tagRepository.findAllResponses()));
+        log.debug("getAllTagResponses - antal taggar={}", tags.size());
         return tags;
     }
 
-    public Tag getTagByName(String name) {
-        log.info("getTagByName - hämta tagg med namn: {}", name);
-        return tagRepository.findByName(name)
+    @Transactional(readOnly = true)
+    public TagResponse getTagResponseByName(String name) {
+        log.info("getTagResponseByName - hämta tagg med namn: {}", name);
+        return sumProductCounts(shardRouter.scatter(shard -> tagRepository.findResponseByName(name).stream().toList()))
+                .stream().findFirst()
                 .orElseThrow(() -> {
-                    log.warn("getTagByName - ingen tagg hittades för namn: {}", name);
+                    log.warn("getTagResponseByName - ingen tagg hittades för namn: {}", name);
                     return new ResourceNotFoundException("Tagg med namn '" + name + "' finns inte");
                 });
     }
 
+    @Transactional
     public Tag createTag(String name, String description) {
         log.info("createTag - skapa ny tagg: {}", name);
 
@@ -51,40 +73,82 @@ public class TagService {
                 .description(description)
                 .build();
 
-        Tag savedTag = tagRepository.save(tag);
+        Tag savedTag = saveReplicated(tag);
+        catalogResponseCache.invalidate();
         log.info("createTag - tagg skapad med ID: {}", savedTag.getId());
         return savedTag;
     }
 
+    @Transactional
     public void deleteTag(Long tagId) {
         log.info("deleteTag - radera tagg med ID: {}", tagId);
         if (!tagRepository.existsById(tagId)) {
             throw new ResourceNotFoundException("Tagg med ID " + tagId + " finns inte");
         }
-        tagRepository.deleteById(tagId);
+        // Taggen finns i varje shard, liksom produkter som bär den i sin rad i läsmodellen
+        shardRouter.forEachShard(shard -> {
+            List<Long> affectedProducts = productTagRepository.findByTagId(tagId).stream()
+                    .map(ProductTag::getProductId)
+                    .collect(Collectors.toList());
+            tagRepository.deleteById(tagId);
+            productListingWriter.refresh(affectedProducts);
+            return null;
+        });
+        catalogResponseCache.invalidate();
         log.info("deleteTag - tagg raderad: {}", tagId);
     }
 
-    public List<Tag> searchTagsByName(String searchTerm) {
-        log.info("searchTagsByName - söka taggar med term: {}", searchTerm);
-        return tagRepository.findByNameContainingIgnoreCase(searchTerm);
+    @Transactional(readOnly = true)
+    public List<TagResponse> searchTagResponses(String searchTerm) {
+        log.info("searchTagResponses - söka taggar med term: {}", searchTerm);
+        return sumProductCounts(shardRouter.scatter(shard -> tagRepository.findResponsesByNameContaining(searchTerm)));
+    }
+
+    /**
+     * Slår ihop shardernas svar för samma tagg; productCount räknas per shard.
+     */
+    private List<TagResponse> sumProductCounts(List<TagResponse> perShard) {
+        if (!shardRouter.isSharded()) {
+            return perShard;
+        }
+        Map<Long, TagResponse> merged = new LinkedHashMap<>();
+        for (TagResponse response : perShard) {
+            merged.merge(response.getId(), response, (first, other) -> new TagResponse(first.getId(), first.getName(),
+                    first.getDescription(), (long) first.getProductCount() + other.getProductCount()));
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    /**
+     * Sparar en ny tagg på hemmasharden och kopierar den med samma ID till övriga shards.
+     */
+    private Tag saveReplicated(Tag tag) {
+        Tag savedTag = shardRouter.onHome(() -> tagRepository.save(tag));
+        shardRouter.replicate("tags", savedTag.getId(), savedTag.getName(), savedTag.getDescription());
+        return savedTag;
     }
 
     public Set<Tag> getOrCreateTags(List<String> tagNames) {
         log.info("getOrCreateTags - hantera taggar: {}", tagNames);
         Set<Tag> tags = new HashSet<>();
 
+        // Alla befintliga taggar i en fråga; bara saknade namn ger en insert var
+        Map<String, Tag> existingTags = tagRepository.findByNameIn(new HashSet<>(tagNames)).stream()
+                .collect(Collectors.toMap(Tag::getName, Function.identity()));
+
         for (String tagName : tagNames) {
-            Optional<Tag> existingTag = tagRepository.findByName(tagName);
-            if (existingTag.isPresent()) {
-                tags.add(existingTag.get());
+            Tag existingTag = existingTags.get(tagName);
+            if (existingTag != null) {
+                tags.add(existingTag);
                 log.debug("getOrCreateTags - använder befintlig tagg: {}", tagName);
             } else {
                 Tag newTag = Tag.builder()
                         .name(tagName)
                         .description("Auto-skapad tagg")
                         .build();
-                Tag savedTag = tagRepository.save(newTag);
+                Tag savedTag = saveReplicated(newTag);
+                catalogResponseCache.invalidate();
+                existingTags.put(tagName, savedTag);
                 tags.add(savedTag);
                 log.info("getOrCreateTags - skapade ny tagg: {}", tagName);
             }
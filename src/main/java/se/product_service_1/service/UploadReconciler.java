@@ -0,0 +1,299 @@
+package se.product_service_1.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import se.product_service_1.config.ReadRouting;
+import se.product_service_1.dto.ReconciliationReport;
+import se.product_service_1.model.ProductImage;
+import se.product_service_1.repository.ProductImageRepository;
+import se.product_service_1.repository.ProductRepository;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Stämmer av uppladdningskatalogen mot product_images i bakgrunden.
+ * <p>
+ * Varje körning går igenom en begränsad del av tabellen och katalogen och fortsätter
+ * där förra körningen slutade. Poster vars produkt saknas tas bort. Poster vars fil saknas
+ * tas bort först när filen saknats i minst karenstiden, så att en tillfälligt otillgänglig
+ * volym inte raderar posterna. Filer som ingen post pekar på raderas när de är äldre än
+ * karenstiden. Går uppladdningskatalogen inte att läsa hoppas hela körningen över. Alla
+ * filsystems- och databasoperationer pacas så att jobbet inte konkurrerar med
+ * bildserveringen om disk.
+ */
+@Component
+public class UploadReconciler {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadReconciler.class);
+
+    private final FileStorageService fileStorageService;
+    private final ProductImageRepository productImageRepository;
+    private final ProductRepository productRepository;
+    private final ShardRouter shardRouter;
+
+    private final boolean enabled;
+    private final Duration gracePeriod;
+    private final int batchSize;
+    private final int maxEntriesPerRun;
+    private final double filesPerSecond;
+    private final double ioOpsPerSecond;
+
+    private final ReentrantLock reconcileLock = new ReentrantLock();
+    // En cursor per shard; bildposterna ligger i produktens shard
+    private final long[] recordCursors;
+    // Per shard: när bildpostens fil först sågs saknas, och vilka som saknats under pågående varv
+    private final List<Map<Long, Instant>> missingSince = new ArrayList<>();
+    private final List<Set<Long>> missingThisPass = new ArrayList<>();
+    private String fileCursor = "";
+    private volatile ReconciliationReport lastReport;
+
+    public UploadReconciler(FileStorageService fileStorageService,
+                            ProductImageRepository productImageRepository,
+                            ProductRepository productRepository,
+                            ShardRouter shardRouter,
+                            @Value("${file.reconciler.enabled:true}") boolean enabled,
+                            @Value("${file.reconciler.grace-period:PT1H}") Duration gracePeriod,
+                            @Value("${file.reconciler.batch-size:200}") int batchSize,
+                            @Value("${file.reconciler.max-entries-per-run:5000}") int maxEntriesPerRun,
+                            @Value("${file.reconciler.files-per-second:200}") double filesPerSecond,
+                            @Value("${file.reconciler.io-ops-per-second:400}") double ioOpsPerSecond) {
+        this.fileStorageService = fileStorageService;
+        this.productImageRepository = productImageRepository;
+        this.productRepository = productRepository;
+        this.shardRouter = shardRouter;
+        this.recordCursors = new long[shardRouter.shardCount()];
+        for (int shard = 0; shard < recordCursors.length; shard++) {
+            missingSince.add(new HashMap<>());
+            missingThisPass.add(new HashSet<>());
+        }
+        this.enabled = enabled;
+        this.gracePeriod = gracePeriod;
+        this.batchSize = batchSize;
+        this.maxEntriesPerRun = maxEntriesPerRun;
+        this.filesPerSecond = filesPerSecond;
+        this.ioOpsPerSecond = ioOpsPerSecond;
+    }
+
+    @Scheduled(initialDelayString = "${file.reconciler.initial-delay:PT1M}",
+            fixedDelayString = "${file.reconciler.interval:PT5M}")
+    public void scheduledRun() {
+        if (enabled) {
+            reconcile();
+        }
+    }
+
+    public ReconciliationReport reconcile() {
+        // Lås i stället för synchronized: jobbet sover och gör I/O och skulle annars låsa
+        // fast sin bärartråd när det körs på en virtuell tråd
+        reconcileLock.lock();
+        try {
+            // Läser från primären: en replik som ligger efter kunde få nya bilder att se föräldralösa ut
+            return ReadRouting.onPrimary(this::doReconcile);
+        } finally {
+            reconcileLock.unlock();
+        }
+    }
+
+    private ReconciliationReport doReconcile() {
+        long start = System.nanoTime();
+        RatePacer filePacer = new RatePacer(filesPerSecond);
+        RatePacer ioPacer = new RatePacer(ioOpsPerSecond);
+        Counters counters = new Counters();
+
+        Path directory = fileStorageService.getFileStorageLocation();
+        try {
+            if (!Files.isDirectory(directory) || !Files.isReadable(directory)) {
+                // Otillgänglig volym: varje post skulle se ut att sakna sin fil
+                log.warn("Upload reconciliation skipped: {} is not a readable directory", directory);
+            } else {
+                reconcileRecords(filePacer, ioPacer, counters);
+                reconcileFiles(filePacer, ioPacer, counters);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            log.warn("Upload reconciliation interrupted");
+        } catch (IOException ex) {
+            log.error("Upload reconciliation failed", ex);
+        }
+
+        ReconciliationReport report = ReconciliationReport.builder()
+                .finishedAt(Instant.now())
+                .durationMillis(Duration.ofNanos(System.nanoTime() - start).toMillis())
+                .recordsScanned(counters.recordsScanned)
+                .recordsDeleted(counters.recordsDeleted)
+                .filesScanned(counters.filesScanned)
+                .filesDeleted(counters.filesDeleted)
+                .bytesReclaimed(counters.bytesReclaimed)
+                .build();
+        lastReport = report;
+        log.info("Upload reconciliation done: {}", report);
+        return report;
+    }
+
+    public ReconciliationReport getLastReport() {
+        return lastReport;
+    }
+
+    private void reconcileRecords(RatePacer filePacer, RatePacer ioPacer, Counters counters) throws InterruptedException {
+        for (int shard = 0; shard < recordCursors.length && counters.recordsScanned < maxEntriesPerRun; shard++) {
+            int current = shard;
+            boolean interrupted = shardRouter.onShard(shard, () -> {
+                try {
+                    reconcileRecords(current, filePacer, ioPacer, counters);
+                    return false;
+                } catch (InterruptedException ex) {
+                    return true;
+                }
+            });
+            if (interrupted) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    private void reconcileRecords(int shard, RatePacer filePacer, RatePacer ioPacer, Counters counters)
+            throws InterruptedException {
+        Map<Long, Instant> missing = missingSince.get(shard);
+        Set<Long> missingNow = missingThisPass.get(shard);
+        Instant now = Instant.now();
+        Instant cutoff = now.minus(gracePeriod);
+        while (counters.recordsScanned < maxEntriesPerRun) {
+            ioPacer.acquire(1);
+            List<ProductImage> batch = productImageRepository.findByIdGreaterThanOrderByIdAsc(
+                    recordCursors[shard], PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                // Varvet är klart; glöm poster som inte längre finns
+                missing.keySet().retainAll(missingNow);
+                missingNow.clear();
+                recordCursors[shard] = 0L;
+                return;
+            }
+
+            ioPacer.acquire(1);
+            Set<Long> existingProducts = new HashSet<>(productRepository.findExistingIds(
+                    batch.stream().map(ProductImage::getProductId).collect(Collectors.toSet())));
+
+            List<ProductImage> orphans = new ArrayList<>();
+            for (ProductImage image : batch) {
+                filePacer.acquire(1);
+                ioPacer.acquire(1);
+                Path filePath = fileStorageService.getFileStorageLocation().resolve(image.getFilePath()).normalize();
+                if (!existingProducts.contains(image.getProductId())) {
+                    orphans.add(image);
+                    missing.remove(image.getId());
+                } else if (Files.notExists(filePath)) {
+                    // notExists är falsk även när det inte går att avgöra, t.ex. vid behörighets- eller I/O-fel
+                    missingNow.add(image.getId());
+                    if (!missing.computeIfAbsent(image.getId(), id -> now).isAfter(cutoff)) {
+                        orphans.add(image);
+                        missing.remove(image.getId());
+                    }
+                } else {
+                    missing.remove(image.getId());
+                }
+            }
+
+            if (!orphans.isEmpty()) {
+                ioPacer.acquire(1);
+                fileStorageService.removeImageRecords(orphans);
+            }
+            counters.recordsScanned += batch.size();
+            counters.recordsDeleted += orphans.size();
+            recordCursors[shard] = batch.get(batch.size() - 1).getId();
+        }
+    }
+
+    private void reconcileFiles(RatePacer filePacer, RatePacer ioPacer, Counters counters)
+            throws IOException, InterruptedException {
+        Path directory = fileStorageService.getFileStorageLocation();
+        List<Path> files = nextFiles(directory, fileCursor, maxEntriesPerRun);
+        Instant cutoff = Instant.now().minus(gracePeriod);
+
+        for (int from = 0; from < files.size(); from += batchSize) {
+            List<Path> batch = files.subList(from, Math.min(from + batchSize, files.size()));
+
+            List<Path> candidates = new ArrayList<>();
+            List<Long> sizes = new ArrayList<>();
+            for (Path file : batch) {
+                filePacer.acquire(1);
+                ioPacer.acquire(1);
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                if (attributes.isRegularFile() && attributes.lastModifiedTime().toInstant().isBefore(cutoff)) {
+                    candidates.add(file);
+                    sizes.add(attributes.size());
+                }
+            }
+            counters.filesScanned += batch.size();
+            if (candidates.isEmpty()) {
+                continue;
+            }
+
+            ioPacer.acquire(1);
+            List<String> names = candidates.stream().map(file -> file.getFileName().toString()).collect(Collectors.toList());
+            Set<String> referenced = new HashSet<>(shardRouter.scatter(shard -> productImageRepository.findFilePathsIn(names)));
+
+            for (int i = 0; i < candidates.size(); i++) {
+                Path file = candidates.get(i);
+                if (!referenced.contains(file.getFileName().toString())) {
+                    ioPacer.acquire(1);
+                    if (Files.deleteIfExists(file)) {
+                        counters.filesDeleted++;
+                        counters.bytesReclaimed += sizes.get(i);
+                        log.debug("Deleted orphaned upload {}", file.getFileName());
+                    }
+                }
+            }
+        }
+
+        // Färre filer än taket betyder att vi nått slutet av katalogen; börja om nästa gång
+        fileCursor = files.size() < maxEntriesPerRun ? "" : files.get(files.size() - 1).getFileName().toString();
+    }
+
+    /**
+     * De limit första filnamnen (i sorteringsordning) efter cursor. Katalogen läses
+     * strömmande och bara limit namn hålls i minnet.
+     */
+    static List<Path> nextFiles(Path directory, String cursor, int limit) throws IOException {
+        PriorityQueue<Path> smallest = new PriorityQueue<>(Collections.reverseOrder());
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                entry -> entry.getFileName().toString().compareTo(cursor) > 0)) {
+            for (Path entry : stream) {
+                smallest.add(entry);
+                if (smallest.size() > limit) {
+                    smallest.poll();
+                }
+            }
+        }
+        List<Path> result = new ArrayList<>(smallest);
+        Collections.sort(result);
+        return result;
+    }
+
+    private static class Counters {
+        int recordsScanned;
+        int recordsDeleted;
+        int filesScanned;
+        int filesDeleted;
+        long bytesReclaimed;
+    }
+}
@@ -0,0 +1,44 @@
+-- Schemat som Hibernate tidigare skapade med ddl-auto=update, exakt som det var. Befintliga databaser
+-- baslinjeras på denna version (spring.flyway.baseline-on-migrate) och får bara V2 och framåt.
+
+create table categories (
+    id bigint generated by default as identity,
+    name varchar(255) not null,
+    primary key (id),
+    constraint uk_categories_name unique (name)
+);
+
+create table products (
+    id bigint generated by default as identity,
+    name varchar(255) not null,
+    category_id bigint not null,
+    price float(53) not null,
+    stock_quantity integer not null,
+    primary key (id),
+    constraint uk_products_name unique (name),
+    constraint fk_products_category foreign key (category_id) references categories (id)
+);
+
+create table tags (
+    id bigint generated by default as identity,
+    name varchar(255) not null,
+    description varchar(500),
+    primary key (id),
+    constraint uk_tags_name unique (name)
+);
+
+create table product_tags (
+    id bigint generated by default as identity,
+    product_id bigint not null,
+    tag_id bigint not null,
+    primary key (id)
+);
+
+create table product_images (
+    id bigint generated by default as identity,
+    product_id bigint not null,
+    file_name varchar(255) not null,
+    content_type varchar(255) not null,
+    file_path varchar(255) not null,
+    primary key (id)
+);
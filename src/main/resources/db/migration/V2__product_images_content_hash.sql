@@ -0,0 +1,4 @@
+-- SHA-256 av filinnehållet, för de versionerade nedladdningsadresserna. Kolumnen kom efter
+-- schemat i V1, så baslinjerade databaser saknar den. if not exists: en databas som skapats
+-- av ddl-auto=update efter att kolumnen lagts till har den redan.
+alter table product_images add column if not exists content_hash varchar(64);
@@ -0,0 +1,19 @@
+-- Index för uppslagningarna som körs på varje request. Kolumnordningen gör indexen
+-- täckande: frågorna mot product_tags läses helt ur indexet utan att gå till tabellen.
+
+-- Dubbletter kunde uppstå innan kopplingen var unik; behåll den äldsta
+delete from product_tags pt
+where exists (select 1 from product_tags d
+              where d.product_id = pt.product_id and d.tag_id = pt.tag_id and d.id < pt.id);
+
+-- findTagIdsByProductId, findByProductId, deleteByProductId(AndTagId), findTagNamesByProductIds
+alter table product_tags add constraint uk_product_tags_product_tag unique (product_id, tag_id);
+
+-- findProductIdsByTagIds, findByTagId, countByTagId(s)
+create index idx_product_tags_tag_product on product_tags (tag_id, product_id);
+
+-- findFirstByProductIdAndFileName(OrderByIdDesc|AndContentHash), findByProductId(In)
+create index idx_product_images_product_file on product_images (product_id, file_name, id);
+
+-- UploadReconciler: findFilePathsIn
+create index idx_product_images_file_path on product_images (file_path);
@@ -0,0 +1,21 @@
+-- Läsmodell för list- och sökendpoints, se ProductListing. Fylls här från befintlig data
+-- och hålls därefter uppdaterad av applikationen i samma transaktion som skrivningarna.
+
+create table product_listings (
+    product_id bigint not null,
+    name varchar(255) not null,
+    category_name varchar(255) not null,
+    price float(53) not null,
+    stock_quantity integer not null,
+    tag_names json not null,
+    primary key (product_id)
+);
+
+create index idx_product_listings_category on product_listings (category_name, product_id);
+
+insert into product_listings (product_id, name, category_name, price, stock_quantity, tag_names)
+select p.id, p.name, c.name, p.price, p.stock_quantity,
+       coalesce((select json_arrayagg(t.name order by t.id)
+                 from product_tags pt join tags t on t.id = pt.tag_id
+                 where pt.product_id = p.id), json '[]')
+from products p join categories c on c.id = p.category_id;
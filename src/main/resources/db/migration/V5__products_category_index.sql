@@ -0,0 +1,3 @@
+-- Kategorins produkter: tomhetskontrollen vid radering av en kategori och statistiken
+-- per kategori, som med pris och lagersaldo i indexet inte behöver läsa tabellen.
+create index idx_products_category_stats on products (category_id, price, stock_quantity);
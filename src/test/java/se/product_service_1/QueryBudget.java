@@ -0,0 +1,53 @@
+package se.product_service_1;
+
+import se.product_service_1.config.QueryCounter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Testhjälp för frågebudgetar. Räknar SQL-satser via QueryCounter, så den kräver en
+ * applikationskontext där DataSource är proxad (QueryCountConfig).
+ */
+public final class QueryBudget {
+
+    @FunctionalInterface
+    public interface Action {
+        void run() throws Exception;
+    }
+
+    private QueryBudget() {
+    }
+
+    public static QueryCounter.Count measure(Action action) throws Exception {
+        QueryCounter.Count count = QueryCounter.start();
+        try {
+            action.run();
+        } finally {
+            QueryCounter.stop(count);
+        }
+        return count;
+    }
+
+    /** Fallerar om action kör fler än maxStatements SQL-satser. */
+    public static QueryCounter.Count assertAtMost(long maxStatements, String description, Action action)
+            throws Exception {
+        QueryCounter.Count count = measure(action);
+        assertTrue(count.getStatements() <= maxStatements,
+                () -> description + ": expected at most " + maxStatements + " statements, was " + count);
+        return count;
+    }
+
+    /**
+     * Kör action, låter grow öka datamängden och kör action igen. Fallerar om antalet
+     * satser ändrats, dvs. om endpointen gör frågor per rad i resultatet.
+     */
+    public static void assertIndependentOfResultSize(String description, Action grow, Action action)
+            throws Exception {
+        long before = measure(action).getStatements();
+        grow.run();
+        long after = measure(action).getStatements();
+        assertEquals(before, after,
+                () -> description + ": statement count grew with result size (" + before + " -> " + after + ")");
+    }
+}
@@ -0,0 +1,39 @@
+package se.product_service_1.config;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ByteBufferHttpMessageConverterTest {
+
+    @Test
+    void write_ShouldGoThroughResponseWrappers() throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        // Som QueryCountFilter: headern sätts när strömmen hämtas
+        HttpServletResponseWrapper wrapper = new HttpServletResponseWrapper(response) {
+            @Override
+            public ServletOutputStream getOutputStream() throws IOException {
+                setHeader("X-Wrapped", "true");
+                return super.getOutputStream();
+            }
+        };
+        ByteBuffer buffer = ByteBuffer.allocateDirect(3).put(new byte[]{1, 2, 3}).flip();
+
+        new ByteBufferHttpMessageConverter().write(buffer, MediaType.IMAGE_PNG, new ServletServerHttpResponse(wrapper));
+
+        assertEquals("true", response.getHeader("X-Wrapped"));
+        assertEquals("3", response.getHeader("Content-Length"));
+        assertArrayEquals(new byte[]{1, 2, 3}, response.getContentAsByteArray());
+        // Buffern kan delas mellan svar och får inte konsumeras
+        assertEquals(3, buffer.remaining());
+    }
+}
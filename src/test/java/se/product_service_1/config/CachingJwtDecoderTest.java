@@ -0,0 +1,69 @@
+package se.product_service_1.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CachingJwtDecoderTest {
+
+    private static final Instant NOW = Instant.parse("2026-01-01T12:00:00Z");
+
+    private final JwtDecoder delegate = mock(JwtDecoder.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CachingJwtDecoder decoder = new CachingJwtDecoder(delegate, 100, Duration.ofMinutes(10),
+            meterRegistry, Clock.fixed(NOW, ZoneOffset.UTC));
+
+    private static Jwt jwt(String token, Instant expiresAt) {
+        return Jwt.withTokenValue(token)
+                .header("alg", "HS256")
+                .subject("user")
+                .issuedAt(NOW.minusSeconds(60))
+                .expiresAt(expiresAt)
+                .build();
+    }
+
+    @Test
+    void decode_ShouldVerifyRepeatedTokenOnlyOnce() {
+        Jwt verified = jwt("a.b.c", NOW.plusSeconds(3600));
+        when(delegate.decode("a.b.c")).thenReturn(verified);
+
+        for (int i = 0; i < 5; i++) {
+            assertSame(verified, decoder.decode("a.b.c"));
+        }
+
+        verify(delegate, times(1)).decode("a.b.c");
+        assertEquals(4, meterRegistry.get("security.jwt.cache.requests").tag("result", "hit").functionCounter().count());
+        assertEquals(1, meterRegistry.get("security.jwt.verification").timer().count());
+    }
+
+    @Test
+    void decode_ShouldNotCacheRejectedTokens() {
+        when(delegate.decode("bad")).thenThrow(new BadJwtException("invalid signature"));
+
+        assertThrows(BadJwtException.class, () -> decoder.decode("bad"));
+        assertThrows(BadJwtException.class, () -> decoder.decode("bad"));
+
+        verify(delegate, times(2)).decode("bad");
+    }
+
+    @Test
+    void decode_ShouldNotServeTokenPastItsExpiry() {
+        // Inom delegatens klocktolerans men redan förbi exp enligt cachens klocka
+        when(delegate.decode("x.y.z")).thenReturn(jwt("x.y.z", NOW.minusSeconds(1)));
+
+        decoder.decode("x.y.z");
+        decoder.decode("x.y.z");
+
+        verify(delegate, times(2)).decode("x.y.z");
+    }
+}
@@ -0,0 +1,104 @@
+package se.product_service_1.config;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.Date;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Läs-/skrivrouting mot två separata H2-databaser. Repliken replikeras aldrig, vilket gör
+ * det synligt vilken databas en läsning gick mot och motsvarar en replik som ligger efter.
+ */
+@SpringBootTest(properties = {
+        ReadReplicaRoutingTest.JWT_SECRET_PROPERTY,
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1",
+        "datasource.replica.enabled=true",
+        "datasource.replica.url=" + ReadReplicaRoutingTest.REPLICA_URL,
+        "file.reconciler.enabled=false"
+})
+@AutoConfigureMockMvc
+class ReadReplicaRoutingTest {
+
+    static final String JWT_SECRET_PROPERTY = "JWT_SECRET=cmVhZC1yZXBsaWNhLXJvdXRpbmctdGVzdC1zZWNyZXQtMDE=";
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+
+    private static final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+    static {
+        // I drift sköter replikeringen schemat; här migreras repliken separat
+        Flyway.configure().dataSource(REPLICA_URL, "sa", "").load().migrate();
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private static String token(String subject) {
+        byte[] key = Base64.getDecoder().decode(JWT_SECRET_PROPERTY.substring("JWT_SECRET=".length()));
+        Instant now = Instant.now();
+        return "Bearer " + Jwts.builder()
+                .subject(subject)
+                .issuedAt(Date.from(now))
+                .expiration(Date.from(now.plus(1, ChronoUnit.HOURS)))
+                .signWith(Keys.hmacShaKeyFor(key), Jwts.SIG.HS256)
+                .compact();
+    }
+
+    @Test
+    void readOnlyRequests_ShouldBeServedByReplica() throws Exception {
+        replica.update("insert into tags (name, description) values ('replica-only', 'finns bara på repliken')");
+
+        mockMvc.perform(get("/tag/name/{name}", "replica-only").header(HttpHeaders.AUTHORIZATION, token("reader")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.description").value("finns bara på repliken"));
+    }
+
+    @Test
+    void writer_ShouldReadOwnWritesWhileOthersReadReplica() throws Exception {
+        mockMvc.perform(post("/tag")
+                        .header(HttpHeaders.AUTHORIZATION, token("writer"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"fresh\", \"description\": \"ny\"}"))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/tag/name/{name}", "fresh").header(HttpHeaders.AUTHORIZATION, token("writer")))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/tag/name/{name}", "fresh").header(HttpHeaders.AUTHORIZATION, token("someone-else")))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void readsAfterWriteInSameRequest_ShouldSeeTheWrite() throws Exception {
+        mockMvc.perform(post("/category")
+                        .header(HttpHeaders.AUTHORIZATION, token("catalog-admin"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"Routing\"}"))
+                .andExpect(status().isOk());
+
+        // Produkt och taggar skrivs och läses sedan tillbaka för svaret i samma request
+        mockMvc.perform(post("/product")
+                        .header(HttpHeaders.AUTHORIZATION, token("catalog-admin"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"productName\": \"routed\", \"categoryName\": \"Routing\", \"price\": 1.0, " +
+                                "\"stockQuantity\": 1, \"tagNames\": [\"routing-tag\"]}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.tagNames[0]").value("routing-tag"));
+    }
+}
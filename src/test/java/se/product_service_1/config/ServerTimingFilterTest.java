@@ -0,0 +1,67 @@
+package se.product_service_1.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServerTimingFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private static MockFilterChain chainWithPhases() {
+        return new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) {
+                request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/product/search");
+                RequestPhaseTimer timer = RequestPhaseTimer.current();
+                timer.markHandlerStart();
+                timer.addRepositoryTime(1_000_000);
+                timer.markBodyStart();
+                timer.markBodyEnd();
+            }
+        });
+    }
+
+    @Test
+    void sampledRequest_ShouldEmitHeaderAndPhaseMetrics() throws Exception {
+        ServerTimingFilter filter = new ServerTimingFilter(meterRegistry, 1.0);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("POST", "/product/search"), response, chainWithPhases());
+
+        String header = response.getHeader(ServerTimingFilter.SERVER_TIMING_HEADER);
+        assertNotNull(header);
+        assertTrue(header.contains("auth;dur="));
+        assertTrue(header.contains("db;dur=1.000;desc=\"Repository calls\""));
+        assertTrue(header.contains("total;dur="));
+        assertEquals(1, meterRegistry.get("http.server.phase")
+                .tags("phase", "db", "uri", "/product/search").timer().count());
+        assertNull(RequestPhaseTimer.current());
+    }
+
+    @Test
+    void unsampledRequest_ShouldNotStartTimer() throws Exception {
+        ServerTimingFilter filter = new ServerTimingFilter(meterRegistry, 0.0);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/product"), response,
+                new MockFilterChain(new HttpServlet() {
+                    @Override
+                    protected void service(HttpServletRequest request, HttpServletResponse response) {
+                        assertNull(RequestPhaseTimer.current());
+                    }
+                }));
+
+        assertNull(response.getHeader(ServerTimingFilter.SERVER_TIMING_HEADER));
+        assertTrue(meterRegistry.find("http.server.phase").timers().isEmpty());
+    }
+}
@@ -0,0 +1,218 @@
+package se.product_service_1.config;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.web.servlet.MockMvc;
+import se.product_service_1.service.ProductPriceIndex;
+import se.product_service_1.service.ShardRouter;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Sharding över tre H2-databaser. Produkterna placeras på namnets hash, så namnen nedan är
+ * valda för att hamna två och två i varje shard; shardernas innehåll kontrolleras direkt.
+ */
+@SpringBootTest(properties = {
+        ShardingTest.JWT_SECRET_PROPERTY,
+        "spring.datasource.url=" + ShardingTest.SHARD_0,
+        "catalog.sharding.enabled=true",
+        "catalog.sharding.urls=" + ShardingTest.SHARD_1 + "," + ShardingTest.SHARD_2,
+        "catalog.sharding.id-range-size=1000000",
+        "file.reconciler.enabled=false"
+})
+@AutoConfigureMockMvc
+class ShardingTest {
+
+    static final String JWT_SECRET_PROPERTY = "JWT_SECRET=c2hhcmRpbmctcm91dGluZy10ZXN0LXNlY3JldC0wMDAx";
+    static final String SHARD_0 = "jdbc:h2:mem:shard-0;DB_CLOSE_DELAY=-1";
+    static final String SHARD_1 = "jdbc:h2:mem:shard-1;DB_CLOSE_DELAY=-1";
+    static final String SHARD_2 = "jdbc:h2:mem:shard-2;DB_CLOSE_DELAY=-1";
+
+    private static final List<JdbcTemplate> shards = List.of(SHARD_0, SHARD_1, SHARD_2).stream()
+            .map(url -> new JdbcTemplate(new DriverManagerDataSource(url, "sa", "")))
+            .toList();
+
+    // floorMod(namn.hashCode(), 3): Soffa, Pall -> 0, Stol, Bord -> 1, Hylla, Lampa -> 2
+    private static final List<String> PRODUCTS = List.of("Soffa", "Stol", "Hylla", "Pall", "Bord", "Lampa");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductPriceIndex productPriceIndex;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    private static String token() {
+        byte[] key = Base64.getDecoder().decode(JWT_SECRET_PROPERTY.substring("JWT_SECRET=".length()));
+        Instant now = Instant.now();
+        return "Bearer " + Jwts.builder()
+                .subject("catalog-admin")
+                .issuedAt(Date.from(now))
+                .expiration(Date.from(now.plus(1, ChronoUnit.HOURS)))
+                .signWith(Keys.hmacShaKeyFor(key), Jwts.SIG.HS256)
+                .compact();
+    }
+
+    private void postJson(String path, String body) throws Exception {
+        mockMvc.perform(post(path)
+                        .header(HttpHeaders.AUTHORIZATION, token())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().is2xxSuccessful());
+    }
+
+    private static List<Long> productIds(JdbcTemplate shard) {
+        return shard.queryForList("select id from products order by id", Long.class);
+    }
+
+    @Test
+    void productsShouldBeSpreadOverShardsAndMergedOnRead() throws Exception {
+        postJson("/category", "{\"name\": \"Möbler\"}");
+        for (int i = 0; i < PRODUCTS.size(); i++) {
+            postJson("/product", "{\"productName\": \"" + PRODUCTS.get(i) + "\", \"categoryName\": \"Möbler\", " +
+                    "\"price\": " + (i + 1) * 100.0 + ", \"stockQuantity\": 10, \"tagNames\": [\"trä\"]}");
+        }
+
+        // categories och tags finns med samma ID i alla shards; varje shard har två produkter i sitt ID-intervall
+        Long categoryId = shards.get(0).queryForObject("select id from categories where name = 'Möbler'", Long.class);
+        Long tagId = shards.get(0).queryForObject("select id from tags where name = 'trä'", Long.class);
+        for (int shard = 0; shard < shards.size(); shard++) {
+            JdbcTemplate jdbc = shards.get(shard);
+            assertEquals(categoryId, jdbc.queryForObject("select id from categories where name = 'Möbler'", Long.class));
+            assertEquals(tagId, jdbc.queryForObject("select id from tags where name = 'trä'", Long.class));
+            List<Long> ids = productIds(jdbc);
+            assertEquals(2, ids.size(), "shard " + shard);
+            for (Long id : ids) {
+                assertEquals(shard, (id - 1) / 1_000_000, "id " + id);
+            }
+        }
+
+        mockMvc.perform(get("/product").header(HttpHeaders.AUTHORIZATION, token()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].productName").value(contains("Soffa", "Pall", "Stol", "Bord", "Hylla", "Lampa")));
+        mockMvc.perform(get("/product/search/tags").param("tags", "trä").header(HttpHeaders.AUTHORIZATION, token()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(6));
+        // Andra sidan av träffarna sorterade på pris, sammanslagen från alla shards
+        mockMvc.perform(post("/product/search")
+                        .header(HttpHeaders.AUTHORIZATION, token())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"tagNames\": [\"trä\"], \"minPrice\": 200, \"sortBy\": \"price\", " +
+                                "\"sortDirection\": \"desc\", \"page\": 1, \"size\": 2}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].productName").value(contains("Pall", "Hylla")));
+        // Bara prisintervall sorterat på pris: sidan tas ur prisindexet, byggt från alla shards
+        productPriceIndex.rebuild();
+        assertEquals(6, productPriceIndex.snapshot().size());
+        mockMvc.perform(post("/product/search")
+                        .header(HttpHeaders.AUTHORIZATION, token())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"minPrice\": 150, \"maxPrice\": 550, \"sortBy\": \"price\", \"page\": 0, \"size\": 3}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].productName").value(contains("Stol", "Hylla", "Pall")));
+        mockMvc.perform(get("/tag/name/{name}", "trä").header(HttpHeaders.AUTHORIZATION, token()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.productCount").value(6));
+        mockMvc.perform(get("/category/stats").header(HttpHeaders.AUTHORIZATION, token()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].productCount").value(6))
+                .andExpect(jsonPath("$[0].totalStock").value(60))
+                .andExpect(jsonPath("$[0].minPrice").value(100.0))
+                .andExpect(jsonPath("$[0].maxPrice").value(600.0));
+
+        // Lagerändring över två shards och radering i en
+        Long soffa = productIds(shards.get(0)).get(0);
+        Long hylla = productIds(shards.get(2)).get(0);
+        postJson("/product/inventoryManager", "{\"inventoryChanges\": [" +
+                "{\"productId\": " + soffa + ", \"inventoryChange\": -3}, " +
+                "{\"productId\": " + hylla + ", \"inventoryChange\": 5}]}");
+        assertEquals(7, shards.get(0).queryForObject("select stock_quantity from products where id = ?", Integer.class, soffa));
+        assertEquals(15, shards.get(2).queryForObject("select stock_quantity from products where id = ?", Integer.class, hylla));
+
+        // Saknas lager i en shard ändras ingen shard
+        mockMvc.perform(post("/product/inventoryManager")
+                        .header(HttpHeaders.AUTHORIZATION, token())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"inventoryChanges\": [" +
+                                "{\"productId\": " + soffa + ", \"inventoryChange\": -1}, " +
+                                "{\"productId\": " + hylla + ", \"inventoryChange\": -100}]}"))
+                .andExpect(status().is4xxClientError());
+        assertEquals(7, shards.get(0).queryForObject("select stock_quantity from products where id = ?", Integer.class, soffa));
+        assertEquals(15, shards.get(2).queryForObject("select stock_quantity from products where id = ?", Integer.class, hylla));
+
+        mockMvc.perform(delete("/product")
+                        .header(HttpHeaders.AUTHORIZATION, token())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"productName\": \"Stol\"}"))
+                .andExpect(status().isOk());
+        assertEquals(1, productIds(shards.get(1)).size());
+        assertEquals(1, shards.get(1).queryForObject("select count(*) from product_listings", Integer.class));
+
+        // Kategorin är inte tom så länge någon shard har produkter i den
+        mockMvc.perform(delete("/category/name/{name}", "Möbler").header(HttpHeaders.AUTHORIZATION, token()))
+                .andExpect(status().is4xxClientError());
+
+        // Namnbyte till ett namn som finns i en annan shard nekas
+        mockMvc.perform(put("/product")
+                        .header(HttpHeaders.AUTHORIZATION, token())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"currentProductName\": \"Soffa\", \"newProductName\": \"Hylla\"}"))
+                .andExpect(status().is5xxServerError());
+        assertEquals("Soffa", shards.get(0).queryForObject("select name from products where id = ?", String.class, soffa));
+    }
+
+    @Test
+    void reconcileShouldCopyReplicatedRowsMissingOnAShard() throws Exception {
+        postJson("/category", "{\"name\": \"Trädgård\"}");
+        Long categoryId = shards.get(0).queryForObject("select id from categories where name = 'Trädgård'", Long.class);
+        // Som om kopieringen till shard 2 inte gått fram
+        shards.get(2).update("delete from categories where id = ?", categoryId);
+
+        shardRouter.reconcile();
+
+        assertEquals("Trädgård", shards.get(2).queryForObject("select name from categories where id = ?", String.class, categoryId));
+        assertEquals(1, shards.get(1).queryForObject("select count(*) from categories where id = ?", Integer.class, categoryId));
+
+        // Kategorierna delas med det andra testet
+        shards.forEach(jdbc -> jdbc.update("delete from categories where id = ?", categoryId));
+    }
+
+    @Test
+    void shardingWithReadReplicaShouldFailAtStartup() {
+        // Som i application.properties, där överskrivningen annars skulle dölja konflikten
+        new ApplicationContextRunner()
+                .withAllowBeanDefinitionOverriding(true)
+                .withUserConfiguration(ShardingConfig.class, ReadReplicaConfig.class)
+                .withPropertyValues("catalog.sharding.enabled=true", "datasource.replica.enabled=true")
+                .run(context -> {
+                    assertNotNull(context.getStartupFailure());
+                    String cause = NestedExceptionUtils.getMostSpecificCause(context.getStartupFailure()).getMessage();
+                    assertTrue(cause.contains("cannot both be true"), cause);
+                });
+    }
+}
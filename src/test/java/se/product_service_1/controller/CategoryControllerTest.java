@@ -6,10 +6,12 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import se.product_service_1.dto.CategoryRequest;
 import se.product_service_1.model.Category;
+import se.product_service_1.service.CatalogResponseCache;
 import se.product_service_1.service.CategoryService;
 
 import java.util.Arrays;
@@ -21,6 +23,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(CategoryController.class)
+@Import(CatalogResponseCache.class)
 class CategoryControllerTest {
 
     @Autowired
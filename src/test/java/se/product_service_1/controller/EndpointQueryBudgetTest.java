@@ -0,0 +1,266 @@
+package se.product_service_1.controller;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import se.product_service_1.QueryBudget;
+import se.product_service_1.config.QueryCountFilter;
+import se.product_service_1.model.Category;
+import se.product_service_1.model.Product;
+import se.product_service_1.model.ProductTag;
+import se.product_service_1.model.Tag;
+import se.product_service_1.repository.CategoryRepository;
+import se.product_service_1.repository.ProductImageRepository;
+import se.product_service_1.repository.ProductListingRepository;
+import se.product_service_1.repository.ProductRepository;
+import se.product_service_1.repository.ProductTagRepository;
+import se.product_service_1.repository.TagRepository;
+import se.product_service_1.service.CatalogResponseCache;
+import se.product_service_1.service.ProductListingWriter;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Frågebudgetar per endpoint. Listendpoints får inte göra fler satser för fler rader.
+ */
+@SpringBootTest(properties = {
+        EndpointQueryBudgetTest.JWT_SECRET_PROPERTY,
+        "spring.datasource.url=jdbc:h2:mem:query-budget;DB_CLOSE_DELAY=-1",
+        "file.reconciler.enabled=false",
+        "sql.query-count.enabled=true",
+        "sql.query-count.count-rows=true",
+        "sql.query-count.header=true"
+})
+@AutoConfigureMockMvc
+class EndpointQueryBudgetTest {
+
+    static final String JWT_SECRET_PROPERTY = "JWT_SECRET=cXVlcnktYnVkZ2V0LXRlc3Qtc2VjcmV0LTAxMjM0NTY3ODk=";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TagRepository tagRepository;
+
+    @Autowired
+    private ProductTagRepository productTagRepository;
+
+    @Autowired
+    private ProductImageRepository productImageRepository;
+
+    @Autowired
+    private ProductListingRepository productListingRepository;
+
+    @Autowired
+    private CatalogResponseCache catalogResponseCache;
+
+    @Autowired
+    private ProductListingWriter productListingWriter;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private String token;
+    private Category category;
+    private int seeded;
+
+    @BeforeEach
+    void setUp() {
+        productImageRepository.deleteAll();
+        productListingRepository.deleteAll();
+        productTagRepository.deleteAll();
+        productRepository.deleteAll();
+        tagRepository.deleteAll();
+        categoryRepository.deleteAll();
+
+        category = categoryRepository.save(Category.builder().name("Budget").build());
+        seeded = 0;
+        seedProducts(3);
+
+        byte[] key = Base64.getDecoder().decode(JWT_SECRET_PROPERTY.substring("JWT_SECRET=".length()));
+        Instant now = Instant.now();
+        token = Jwts.builder()
+                .subject("query-budget")
+                .issuedAt(Date.from(now))
+                .expiration(Date.from(now.plus(1, ChronoUnit.HOURS)))
+                .signWith(Keys.hmacShaKeyFor(key), Jwts.SIG.HS256)
+                .compact();
+    }
+
+    private void seedProducts(int count) {
+        List<Long> productIds = new ArrayList<>();
+        for (int i = 0; i < count; i++, seeded++) {
+            Product product = productRepository.save(Product.builder()
+                    .name("product-" + seeded)
+                    .category(category)
+                    .price(10.0 + seeded)
+                    .stockQuantity(5)
+                    .build());
+            productIds.add(product.getId());
+            Tag tag = tagRepository.save(Tag.builder().name("tag-" + seeded).build());
+            Tag shared = tagRepository.findByName("shared")
+                    .orElseGet(() -> tagRepository.save(Tag.builder().name("shared").build()));
+            productTagRepository.save(ProductTag.builder().productId(product.getId()).tagId(tag.getId()).build());
+            productTagRepository.save(ProductTag.builder().productId(product.getId()).tagId(shared.getId()).build());
+        }
+        // Seedningen går förbi tjänsterna, som annars uppdaterar läsmodellen och invaliderar svarscachen
+        productListingWriter.refresh(productIds);
+        catalogResponseCache.invalidate();
+    }
+
+    private void perform(org.springframework.test.web.servlet.RequestBuilder request) throws Exception {
+        mockMvc.perform(request).andExpect(status().is2xxSuccessful());
+    }
+
+    @Test
+    void listProducts_ShouldNotQueryPerProduct() throws Exception {
+        QueryBudget.assertIndependentOfResultSize("GET /product", () -> seedProducts(20),
+                () -> perform(get("/product").header(HttpHeaders.AUTHORIZATION, "Bearer " + token)));
+    }
+
+    @Test
+    void searchByTag_ShouldNotQueryPerProduct() throws Exception {
+        QueryBudget.assertIndependentOfResultSize("GET /product/search/tags", () -> seedProducts(20),
+                () -> perform(get("/product/search/tags").param("tags", "shared")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)));
+    }
+
+    @Test
+    void listTags_ShouldNotQueryPerTag() throws Exception {
+        QueryBudget.assertIndependentOfResultSize("GET /tag", () -> seedProducts(20),
+                () -> perform(get("/tag").header(HttpHeaders.AUTHORIZATION, "Bearer " + token)));
+    }
+
+    @Test
+    void categoryStats_ShouldBeOneAggregateQuery() throws Exception {
+        QueryBudget.assertIndependentOfResultSize("GET /category/stats", () -> seedProducts(20),
+                () -> perform(get("/category/stats").header(HttpHeaders.AUTHORIZATION, "Bearer " + token)));
+        catalogResponseCache.invalidate();
+        QueryBudget.assertAtMost(1, "GET /category/stats",
+                () -> perform(get("/category/stats").header(HttpHeaders.AUTHORIZATION, "Bearer " + token)));
+    }
+
+    @Test
+    void addTagsToProduct_ShouldStayWithinBudget() throws Exception {
+        Long productId = productRepository.findByName("product-0").orElseThrow().getId();
+
+        // Produkt, befintliga taggar, befintliga kopplingar och en insert per ny tagg och koppling,
+        // plus läsmodellen: produkt, taggnamn, befintlig rad och uppdateringen av den
+        QueryBudget.assertAtMost(11, "POST /product/{id}/tags",
+                () -> perform(post("/product/{productId}/tags", productId)
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[\"shared\", \"tag-1\", \"new-tag\"]")));
+    }
+
+    @Test
+    void listProducts_RepeatedRequestShouldBeServedFromCache() throws Exception {
+        MvcResult first = mockMvc.perform(get("/product").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(status().isOk())
+                .andReturn();
+        String eTag = first.getResponse().getHeader(HttpHeaders.ETAG);
+
+        QueryBudget.assertAtMost(0, "GET /product (cachad)",
+                () -> mockMvc.perform(get("/product").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                        .andExpect(status().isOk())
+                        .andExpect(content().bytes(first.getResponse().getContentAsByteArray())));
+        QueryBudget.assertAtMost(0, "GET /product (If-None-Match)",
+                () -> mockMvc.perform(get("/product").header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                                .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                        .andExpect(status().isNotModified())
+                        .andExpect(content().bytes(new byte[0])));
+    }
+
+    @Test
+    void listProducts_MutationShouldChangeETag() throws Exception {
+        String before = mockMvc.perform(get("/product").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        perform(post("/product")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"productName\": \"new-product\", \"categoryName\": \"Budget\", \"price\": 1.0, \"stockQuantity\": 1}"));
+
+        mockMvc.perform(get("/product").header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                        .header(HttpHeaders.IF_NONE_MATCH, before))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(4));
+    }
+
+    @Test
+    void response_ShouldReportStatementCount() throws Exception {
+        mockMvc.perform(get("/product").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(QueryCountFilter.STATEMENT_COUNT_HEADER))
+                .andExpect(header().exists(QueryCountFilter.ROWS_FETCHED_HEADER));
+    }
+
+    @Test
+    void productLoads_ShouldTakeCategoryAndTagsFromSecondLevelCache() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        productRepository.findAll();
+        categoryRepository.findByName("Budget");
+        tagRepository.findByName("shared");
+        long categoryLoads = statistics.getEntityStatistics(Category.class.getName()).getLoadCount();
+        long tagLoads = statistics.getEntityStatistics(Tag.class.getName()).getLoadCount();
+
+        // Bara produktraderna; kategorin kommer ur andra nivåns cache i stället för en join
+        QueryBudget.assertAtMost(1, "findAll(Product)", () -> productRepository.findAll());
+        QueryBudget.assertAtMost(0, "findByName(Category)", () -> categoryRepository.findByName("Budget").orElseThrow());
+        QueryBudget.assertAtMost(0, "findByName(Tag)", () -> tagRepository.findByName("shared").orElseThrow());
+        assertEquals(categoryLoads, statistics.getEntityStatistics(Category.class.getName()).getLoadCount());
+        assertEquals(tagLoads, statistics.getEntityStatistics(Tag.class.getName()).getLoadCount());
+
+        FunctionCounter hits = meterRegistry.find("hibernate.second.level.cache.requests")
+                .tag("region", "category").tag("result", "hit").functionCounter();
+        assertNotNull(hits);
+        assertTrue(hits.count() > 0);
+    }
+
+    @Test
+    void renamedCategory_ShouldNotBeFoundUnderOldNameFromQueryCache() throws Exception {
+        categoryRepository.findByName("Budget").orElseThrow();
+        category.setName("Budget 2");
+        categoryRepository.save(category);
+
+        assertTrue(categoryRepository.findByName("Budget").isEmpty());
+        assertEquals(category.getId(), categoryRepository.findByName("Budget 2").orElseThrow().getId());
+    }
+}
@@ -6,12 +6,14 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import se.product_service_1.dto.*;
 import se.product_service_1.model.Category;
 import se.product_service_1.model.Product;
 import se.product_service_1.model.Tag;
+import se.product_service_1.service.CatalogResponseCache;
 import se.product_service_1.service.CategoryService;
 import se.product_service_1.service.ProductService;
 
@@ -23,6 +25,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(ProductController.class)
+@Import(CatalogResponseCache.class)
 class ProductControllerTest {
 
     @Autowired
@@ -0,0 +1,83 @@
+package se.product_service_1.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import se.product_service_1.dto.ProductResponse;
+import se.product_service_1.model.ProductListing;
+import se.product_service_1.model.ProductTag;
+import se.product_service_1.model.Tag;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static se.product_service_1.repository.ProductListingSpecifications.*;
+
+/**
+ * Sökkriterierna kombinerade i en fråga mot det riktiga schemat.
+ */
+@DataJpaTest
+class ProductListingSearchTest {
+
+    @Autowired
+    private ProductListingRepository productListingRepository;
+
+    @Autowired
+    private TagRepository tagRepository;
+
+    @Autowired
+    private ProductTagRepository productTagRepository;
+
+    @BeforeEach
+    void setUp() {
+        productListingRepository.saveAll(List.of(
+                new ProductListing(1L, "Tofu", "Mat", 25.0, 10, List.of("vegan", "kyl")),
+                new ProductListing(2L, "Ost", "Mat", 80.0, 0, List.of("kyl")),
+                new ProductListing(3L, "Havre", "Mat", 15.0, 4, List.of("vegan", "torrvara")),
+                new ProductListing(4L, "Laptop", "Elektronik", 9999.0, 3, List.of())));
+        Tag vegan = tagRepository.save(Tag.builder().name("vegan").build());
+        Tag cold = tagRepository.save(Tag.builder().name("kyl").build());
+        Tag dry = tagRepository.save(Tag.builder().name("torrvara").build());
+        productTagRepository.saveAll(List.of(
+                ProductTag.builder().productId(1L).tagId(vegan.getId()).build(),
+                ProductTag.builder().productId(1L).tagId(cold.getId()).build(),
+                ProductTag.builder().productId(2L).tagId(cold.getId()).build(),
+                ProductTag.builder().productId(3L).tagId(vegan.getId()).build(),
+                ProductTag.builder().productId(3L).tagId(dry.getId()).build()));
+    }
+
+    private List<Long> ids(Specification<ProductListing> specification, Pageable pageable) {
+        return productListingRepository.findResponses(specification, pageable).stream().map(ProductResponse::getId).toList();
+    }
+
+    @Test
+    void criteria_ShouldAllApply() {
+        Pageable byId = Pageable.unpaged(Sort.by("productId"));
+
+        assertEquals(List.of(1L, 3L), ids(Specification.allOf(inCategory("Mat"), inStock()), byId));
+        assertEquals(List.of(1L, 2L), ids(Specification.allOf(inCategory("Mat"), priceAtLeast(20.0), priceAtMost(100.0)), byId));
+        assertEquals(List.of(1L), ids(Specification.allOf(hasAnyTag(List.of("kyl", "saknas")), inStock()), byId));
+        assertEquals(List.of(1L), ids(hasAllTags(List.of("vegan", "kyl")), byId));
+        assertEquals(List.of(), ids(hasAllTags(List.of("vegan", "saknas")), byId));
+        assertEquals(List.of(3L), ids(Specification.allOf(hasTagMatching("TORR"), hasAnyTag(List.of("vegan"))), byId));
+        // Jokertecken i sökordet matchas bokstavligt
+        assertEquals(List.of(), ids(hasTagMatching("%"), byId));
+        assertEquals(List.of(), ids(hasTagMatching("v_gan"), byId));
+        assertEquals(List.of(1L, 2L, 3L, 4L), ids(Specification.allOf(List.of()), byId));
+    }
+
+    @Test
+    void results_ShouldBeSortedAndPagedInTheQuery() {
+        Sort byPriceDescending = Sort.by(Sort.Direction.DESC, "price").and(Sort.by("productId"));
+
+        assertEquals(List.of(4L, 2L), ids(Specification.allOf(List.of()), PageRequest.of(0, 2, byPriceDescending)));
+        assertEquals(List.of(1L, 3L), ids(Specification.allOf(List.of()), PageRequest.of(1, 2, byPriceDescending)));
+        assertEquals(new ProductResponse(1L, "Tofu", "Mat", 25.0, 10, List.of("vegan", "kyl")),
+                productListingRepository.findResponses(hasAllTags(List.of("vegan", "kyl")), Pageable.unpaged()).get(0));
+    }
+}
@@ -0,0 +1,118 @@
+package se.product_service_1.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import se.product_service_1.config.QueryCountConfig;
+import se.product_service_1.config.QueryCounter;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Frågeplaner för uppslagningarna som körs på varje request, mot schemat som Flyway bygger.
+ * Repository-metoden anropas och satsen som Hibernate faktiskt skickar fångas via
+ * datasource-proxy (QueryCounter.capture) och körs med EXPLAIN. Ändras en fråga eller ett
+ * index så att planen blir en tabellskanning fallerar testet.
+ */
+@DataJpaTest(properties = "sql.query-count.enabled=true")
+@Import(QueryCountConfig.class)
+@ImportAutoConfiguration(PropertyPlaceholderAutoConfiguration.class)
+class QueryPlanTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ProductTagRepository productTagRepository;
+
+    @Autowired
+    private TagRepository tagRepository;
+
+    @Autowired
+    private ProductImageRepository productImageRepository;
+
+    @Autowired
+    private ProductListingRepository productListingRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private String planOf(Runnable repositoryCall) {
+        QueryCounter.Count count = QueryCounter.capture();
+        try {
+            repositoryCall.run();
+        } finally {
+            QueryCounter.stop(count);
+        }
+        List<QueryCounter.ExecutedStatement> executed = count.getExecuted();
+        assertEquals(1, executed.size(), () -> "Expected one statement, was " + executed);
+        QueryCounter.ExecutedStatement statement = executed.get(0);
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + statement.sql(), String.class,
+                statement.parameters().toArray()));
+    }
+
+    private void assertUsesIndex(String index, Runnable repositoryCall) {
+        String plan = planOf(repositoryCall);
+        assertTrue(plan.toUpperCase().contains(index.toUpperCase()), () -> "Expected " + index + " in plan:\n" + plan);
+        assertFalse(plan.contains("tableScan"), () -> "Unexpected table scan in plan:\n" + plan);
+    }
+
+    @Test
+    void findTagIdsByProductId_ShouldUseProductTagIndex() {
+        assertUsesIndex("uk_product_tags_product_tag", () -> productTagRepository.findTagIdsByProductId(1L));
+    }
+
+    @Test
+    void findTagNamesByProductIds_ShouldUseProductTagIndex() {
+        assertUsesIndex("uk_product_tags_product_tag",
+                () -> productTagRepository.findTagNamesByProductIds(List.of(1L, 2L, 3L)));
+    }
+
+    @Test
+    void findProductIdsByTagIds_ShouldUseTagProductIndex() {
+        assertUsesIndex("idx_product_tags_tag_product",
+                () -> productTagRepository.findProductIdsByTagIds(List.of(1L, 2L)));
+    }
+
+    @Test
+    void findByTagId_ShouldUseTagProductIndex() {
+        assertUsesIndex("idx_product_tags_tag_product", () -> productTagRepository.findByTagId(1L));
+    }
+
+    @Test
+    void findResponseByName_ShouldCountProductsUsingTagProductIndex() {
+        assertUsesIndex("idx_product_tags_tag_product", () -> tagRepository.findResponseByName("Vegan"));
+    }
+
+    @Test
+    void findLatestImageByProductIdAndFileName_ShouldUseProductFileIndex() {
+        assertUsesIndex("idx_product_images_product_file",
+                () -> productImageRepository.findFirstByProductIdAndFileNameOrderByIdDesc(1L, "a.png"));
+    }
+
+    @Test
+    void findResponsesByCategoryName_ShouldUseCategoryIndex() {
+        assertUsesIndex("idx_product_listings_category",
+                () -> productListingRepository.findResponsesByCategoryName("Mat"));
+    }
+
+    @Test
+    void existsByCategoryName_ShouldUseCategoryIndex() {
+        // H2 väljer sitt eget FK-index på category_id, databaser utan FK-index idx_products_category_stats
+        assertUsesIndex("products_category", () -> productRepository.existsByCategoryName("Mat"));
+    }
+
+    @Test
+    void findFilePathsIn_ShouldUseFilePathIndex() {
+        assertUsesIndex("idx_product_images_file_path",
+                () -> productImageRepository.findFilePathsIn(List.of("a.png", "b.png")));
+    }
+}
@@ -0,0 +1,94 @@
+package se.product_service_1.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import se.product_service_1.dto.CategoryStatsResponse;
+import se.product_service_1.dto.ProductResponse;
+import se.product_service_1.dto.TagResponse;
+import se.product_service_1.model.Category;
+import se.product_service_1.model.Product;
+import se.product_service_1.model.ProductListing;
+import se.product_service_1.model.ProductTag;
+import se.product_service_1.model.Tag;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Konstruktoruttrycken i repositoryna mot det riktiga schemat: fälten hamnar på rätt plats
+ * i svaret, taggnamnen läses tillbaka från JSON-kolumnen och taggar och kategorier utan
+ * produkter får 0.
+ */
+@DataJpaTest
+class ResponseProjectionTest {
+
+    @Autowired
+    private ProductListingRepository productListingRepository;
+
+    @Autowired
+    private TagRepository tagRepository;
+
+    @Autowired
+    private ProductTagRepository productTagRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private Tag vegan;
+
+    @BeforeEach
+    void setUp() {
+        productListingRepository.saveAll(List.of(
+                new ProductListing(2L, "Tofu", "Mat", 25.0, 10, List.of("vegan", "kyl")),
+                new ProductListing(1L, "Laptop", "Elektronik", 9999.0, 3, List.of())));
+        vegan = tagRepository.save(Tag.builder().name("vegan").description("Växtbaserat").build());
+        tagRepository.save(Tag.builder().name("oanvänd").build());
+        productTagRepository.save(ProductTag.builder().productId(2L).tagId(vegan.getId()).build());
+    }
+
+    @Test
+    void productResponses_ShouldBeProjectedFromListingInIdOrder() {
+        List<ProductResponse> all = productListingRepository.findAllResponses();
+
+        assertEquals(List.of(1L, 2L), all.stream().map(ProductResponse::getId).toList());
+        assertEquals(new ProductResponse(2L, "Tofu", "Mat", 25.0, 10, List.of("vegan", "kyl")), all.get(1));
+        assertEquals(List.of(), all.get(0).getTagNames());
+        assertEquals(List.of("Tofu"), productListingRepository.findResponsesByCategoryName("Mat").stream()
+                .map(ProductResponse::getProductName).toList());
+        assertEquals(List.of(1L), productListingRepository.findResponsesByProductIds(List.of(1L, 99L)).stream()
+                .map(ProductResponse::getId).toList());
+    }
+
+    @Test
+    void tagResponses_ShouldIncludeProductCount() {
+        assertEquals(new TagResponse(vegan.getId(), "vegan", "Växtbaserat", 1),
+                tagRepository.findResponseByName("vegan").orElseThrow());
+        assertEquals(List.of(1, 0), tagRepository.findAllResponses().stream().map(TagResponse::getProductCount).toList());
+        assertEquals(List.of("vegan"), tagRepository.findResponsesByNameContaining("EGA").stream()
+                .map(TagResponse::getName).toList());
+        assertTrue(tagRepository.findResponsesByNameContaining("%").isEmpty());
+        assertTrue(tagRepository.findIdsByNameContaining("v_gan").isEmpty());
+        assertTrue(tagRepository.findResponseByName("saknas").isEmpty());
+    }
+
+    @Test
+    void categoryStats_ShouldAggregatePerCategoryIncludingEmptyOnes() {
+        Category food = categoryRepository.save(Category.builder().name("Mat").build());
+        categoryRepository.save(Category.builder().name("Tom").build());
+        productRepository.save(Product.builder().name("Tofu").category(food).price(25.0).stockQuantity(10).build());
+        productRepository.save(Product.builder().name("Havre").category(food).price(15.0).stockQuantity(4).build());
+
+        assertEquals(List.of(
+                        new CategoryStatsResponse("Mat", 2, 14, 25.0 * 10 + 15.0 * 4, 15.0, 25.0),
+                        new CategoryStatsResponse("Tom", 0, 0, 0.0, null, null)),
+                categoryRepository.findStats());
+        assertTrue(productRepository.existsByCategoryName("Mat"));
+        assertFalse(productRepository.existsByCategoryName("Tom"));
+    }
+}
@@ -0,0 +1,69 @@
+package se.product_service_1.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Databaser som skapats med det gamla ddl-auto=update baslinjeras på V1 och ska sedan ha
+ * samma schema som en databas som Flyway byggt från början.
+ */
+class SchemaMigrationTest {
+
+    private static DataSource database(String name) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+
+    private static void migrate(DataSource dataSource) {
+        Flyway.configure()
+                .dataSource(dataSource)
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load()
+                .migrate();
+    }
+
+    private static int contentHashColumns(DataSource dataSource) {
+        return new JdbcTemplate(dataSource).queryForObject(
+                "select count(*) from information_schema.columns " +
+                        "where lower(table_name) = 'product_images' and lower(column_name) = 'content_hash'",
+                Integer.class);
+    }
+
+    @Test
+    void baselinedDatabaseShouldGetContentHash() {
+        DataSource dataSource = database("baselined");
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/V1__initial_schema.sql")).execute(dataSource);
+
+        migrate(dataSource);
+
+        assertEquals(1, contentHashColumns(dataSource));
+    }
+
+    @Test
+    void baselinedDatabaseThatAlreadyHasContentHashShouldMigrate() {
+        DataSource dataSource = database("baselined-with-hash");
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/V1__initial_schema.sql")).execute(dataSource);
+        new JdbcTemplate(dataSource).execute("alter table product_images add column content_hash varchar(64)");
+
+        migrate(dataSource);
+
+        assertEquals(1, contentHashColumns(dataSource));
+    }
+
+    @Test
+    void newDatabaseShouldGetContentHash() {
+        DataSource dataSource = database("fresh");
+
+        migrate(dataSource);
+
+        assertEquals(1, contentHashColumns(dataSource));
+    }
+}
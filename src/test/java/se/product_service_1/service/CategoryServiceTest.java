@@ -5,14 +5,13 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import se.product_service_1.exception.CategoryAlreadyExistsException;
 import se.product_service_1.exception.CategoryNotEmptyException;
 import se.product_service_1.exception.CategoryNotFoundException;
 import se.product_service_1.model.Category;
-import se.product_service_1.model.Product;
 import se.product_service_1.repository.CategoryRepository;
 
-import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,6 +26,12 @@ class CategoryServiceTest {
     @Mock
     private ProductService productService;
 
+    @Mock
+    private CatalogResponseCache catalogResponseCache;
+
+    @Spy
+    private ShardRouter shardRouter = ShardRouter.single();
+
     @InjectMocks
     private CategoryService categoryService;
 
@@ -81,7 +86,7 @@ class CategoryServiceTest {
 
     @Test
     void deleteCategoryByName_ShouldDelete_WhenEmptyCategory() {
-        when(productService.getProductsByCategory("Electronics")).thenReturn(Collections.emptyList());
+        when(productService.hasProductsInCategory("Electronics")).thenReturn(false);
         when(categoryRepository.findByName("Electronics")).thenReturn(Optional.of(sampleCategory));
 
         categoryService.deleteCategoryByName("Electronics");
@@ -91,8 +96,7 @@ class CategoryServiceTest {
 
     @Test
     void deleteCategoryByName_ShouldThrow_WhenCategoryNotEmpty() {
-        when(productService.getProductsByCategory("Electronics"))
-                .thenReturn(List.of(Product.builder().id(1L).name("TestProduct").build()));
+        when(productService.hasProductsInCategory("Electronics")).thenReturn(true);
 
         assertThrows(CategoryNotEmptyException.class,
                 () -> categoryService.deleteCategoryByName("Electronics"));
@@ -102,7 +106,7 @@ class CategoryServiceTest {
 
     @Test
     void deleteCategoryByName_ShouldThrow_WhenCategoryNotFound() {
-        when(productService.getProductsByCategory("Electronics")).thenReturn(Collections.emptyList());
+        when(productService.hasProductsInCategory("Electronics")).thenReturn(false);
         when(categoryRepository.findByName("Electronics")).thenReturn(Optional.empty());
 
         assertThrows(CategoryNotFoundException.class,
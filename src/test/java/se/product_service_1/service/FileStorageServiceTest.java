@@ -0,0 +1,128 @@
+package se.product_service_1.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mock.web.MockMultipartFile;
+import se.product_service_1.config.FileStorageConfig;
+import se.product_service_1.dto.ProductImageMetadata;
+import se.product_service_1.exception.ResourceNotFoundException;
+import se.product_service_1.model.Product;
+import se.product_service_1.model.ProductImage;
+import se.product_service_1.repository.ProductImageRepository;
+import se.product_service_1.repository.ProductRepository;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class FileStorageServiceTest {
+
+    @Mock
+    private ProductImageRepository productImageRepository;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private FileStorageConfig fileStorageConfig;
+
+    @TempDir
+    Path uploadDir;
+
+    private FileStorageService fileStorageService;
+
+    private ProductImage sampleImage;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        when(fileStorageConfig.getUploadDir()).thenReturn(uploadDir.toString());
+        fileStorageService = new FileStorageService(fileStorageConfig, productImageRepository,
+                productRepository, new ProductImageMetadataCache(100), new HotImageCache(false, 0, 0),
+                new SimpleMeterRegistry(), ShardRouter.single());
+
+        Files.write(uploadDir.resolve("abc.png"), new byte[]{1, 2, 3});
+        sampleImage = ProductImage.builder()
+                .id(7L)
+                .productId(1L)
+                .fileName("hero.png")
+                .contentType("image/png")
+                .filePath("abc.png")
+                .build();
+    }
+
+    @Test
+    void loadImageMetadata_ShouldResolveOnce_WhenCalledRepeatedly() {
+        when(productImageRepository.findFirstByProductIdAndFileNameOrderByIdDesc(1L, "hero.png")).thenReturn(Optional.of(sampleImage));
+
+        ProductImageMetadata first = fileStorageService.loadImageMetadata(1L, "hero.png");
+        ProductImageMetadata second = fileStorageService.loadImageMetadata(1L, "hero.png");
+
+        assertSame(first, second);
+        assertEquals(3, first.getSize());
+        assertEquals("image/png", first.getContentType());
+        assertNotNull(first.getETag());
+        verify(productImageRepository, times(1)).findFirstByProductIdAndFileNameOrderByIdDesc(1L, "hero.png");
+    }
+
+    @Test
+    void deleteProductImage_ShouldInvalidateCachedMetadata() {
+        when(productImageRepository.findFirstByProductIdAndFileNameOrderByIdDesc(1L, "hero.png")).thenReturn(Optional.of(sampleImage));
+        when(productImageRepository.findById(7L)).thenReturn(Optional.of(sampleImage));
+        fileStorageService.loadImageMetadata(1L, "hero.png");
+
+        fileStorageService.deleteProductImage(1L, 7L);
+        when(productImageRepository.findFirstByProductIdAndFileNameOrderByIdDesc(1L, "hero.png")).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class,
+                () -> fileStorageService.loadImageMetadata(1L, "hero.png"));
+    }
+
+    @Test
+    void getProductImages_ShouldGroupByProduct_WithSingleQuery() {
+        ProductImage other = ProductImage.builder().id(8L).productId(2L).fileName("b.png").build();
+        when(productImageRepository.findByProductIdInOrderByProductIdAscIdAsc(anyCollection()))
+                .thenReturn(List.of(sampleImage, other));
+
+        Map<Long, List<ProductImage>> result = fileStorageService.getProductImages(List.of(2L, 1L, 3L));
+
+        assertEquals(List.of(2L, 1L, 3L), List.copyOf(result.keySet()));
+        assertEquals(List.of(sampleImage), result.get(1L));
+        assertEquals(List.of(other), result.get(2L));
+        assertTrue(result.get(3L).isEmpty());
+        verify(productImageRepository, times(1)).findByProductIdInOrderByProductIdAscIdAsc(anyCollection());
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void storeFile_ShouldRecordContentHash_AndUseItAsETag() {
+        when(productRepository.findById(1L)).thenReturn(Optional.of(Product.builder().id(1L).build()));
+        when(productImageRepository.save(any(ProductImage.class))).thenAnswer(invocation -> {
+            ProductImage image = invocation.getArgument(0);
+            image.setId(9L);
+            return image;
+        });
+        MockMultipartFile file = new MockMultipartFile("file", "hero.png", "image/png", "abc".getBytes());
+
+        ProductImage stored = fileStorageService.storeFile(1L, file);
+        when(productImageRepository.findFirstByProductIdAndFileNameAndContentHash(1L, "hero.png", stored.getContentHash()))
+                .thenReturn(Optional.of(stored));
+        ProductImageMetadata metadata = fileStorageService.loadImageMetadata(1L, "hero.png", stored.getContentHash());
+
+        // SHA-256 av "abc"
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", stored.getContentHash());
+        assertEquals("\"" + stored.getContentHash() + "\"", metadata.getETag());
+        assertEquals(3, metadata.getSize());
+    }
+}
@@ -0,0 +1,54 @@
+package se.product_service_1.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import se.product_service_1.dto.ProductImageMetadata;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotImageCacheTest {
+
+    @TempDir
+    Path uploadDir;
+
+    private ProductImageMetadata writeImage(long imageId, int size) throws Exception {
+        Path path = uploadDir.resolve(imageId + ".png");
+        Files.write(path, new byte[size]);
+        return ProductImageMetadata.builder()
+                .imageId(imageId)
+                .productId(1L)
+                .fileName(imageId + ".png")
+                .path(path)
+                .size(size)
+                .contentType("image/png")
+                .eTag("\"" + imageId + "\"")
+                .build();
+    }
+
+    @Test
+    void get_ShouldServeDirectBufferAndCountHits() throws Exception {
+        HotImageCache cache = new HotImageCache(true, 1024, 512);
+        ProductImageMetadata image = writeImage(1L, 100);
+
+        ByteBuffer first = cache.get(image);
+        ByteBuffer second = cache.get(image);
+
+        assertTrue(first.isDirect());
+        assertEquals(100, first.remaining());
+        assertSame(first, second);
+        assertEquals(100, cache.residentBytes());
+        assertEquals(0.5, cache.hitRatio());
+    }
+
+    @Test
+    void get_ShouldSkipImages_WhenDisabledOrTooLarge() throws Exception {
+        ProductImageMetadata image = writeImage(2L, 600);
+
+        assertNull(new HotImageCache(false, 1024, 512).get(writeImage(3L, 10)));
+        assertNull(new HotImageCache(true, 1024, 512).get(image));
+    }
+}
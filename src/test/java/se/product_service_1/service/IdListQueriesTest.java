@@ -0,0 +1,114 @@
+package se.product_service_1.service;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.transaction.TestTransaction;
+import se.product_service_1.model.Category;
+import se.product_service_1.model.Product;
+import se.product_service_1.model.ProductListing;
+import se.product_service_1.model.ProductTag;
+import se.product_service_1.model.Tag;
+import se.product_service_1.repository.CategoryRepository;
+import se.product_service_1.repository.ProductListingRepository;
+import se.product_service_1.repository.ProductRepository;
+import se.product_service_1.repository.ProductTagRepository;
+import se.product_service_1.repository.TagRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Samma svar oavsett väg: en IN-fråga, chunks eller den temporära tabellen, mot det riktiga schemat.
+ */
+@DataJpaTest
+class IdListQueriesTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private TagRepository tagRepository;
+
+    @Autowired
+    private ProductTagRepository productTagRepository;
+
+    @Autowired
+    private ProductListingRepository productListingRepository;
+
+    private List<Long> productIds;
+
+    @BeforeEach
+    void setUp() {
+        Category category = categoryRepository.save(Category.builder().name("Mat").build());
+        Tag vegan = tagRepository.save(Tag.builder().name("vegan").build());
+        productIds = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            Product product = productRepository.save(Product.builder().name("Produkt " + i).category(category)
+                    .price(10.0 + i).stockQuantity(i).build());
+            productTagRepository.save(ProductTag.builder().productId(product.getId()).tagId(vegan.getId()).build());
+            productListingRepository.save(new ProductListing(product.getId(), product.getName(), "Mat",
+                    product.getPrice(), i, List.of("vegan")));
+            productIds.add(product.getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private static List<Long> sorted(Collection<Long> ids) {
+        return ids.stream().sorted().toList();
+    }
+
+    @Test
+    void chunks_ShouldCoverAllIdsWithBoundedInLists() {
+        List<Integer> chunkSizes = new ArrayList<>();
+        IdListQueries queries = new IdListQueries(entityManager, 3, Integer.MAX_VALUE);
+
+        List<Product> products = queries.query(productIds, ids -> {
+            chunkSizes.add(ids.size());
+            return productRepository.findAllById(ids);
+        }, () -> fail("Temporär tabell under tröskeln"));
+
+        assertEquals(List.of(3, 3, 1), chunkSizes);
+        assertEquals(productIds, sorted(products.stream().map(Product::getId).toList()));
+    }
+
+    @Test
+    void tempTable_ShouldJoinWithoutCommittingTheTransaction() {
+        IdListQueries queries = new IdListQueries(entityManager, 2, 4);
+        List<Long> wanted = productIds.subList(1, 6);
+
+        List<Product> products = queries.query(wanted, ids -> fail("IN-fråga över tröskeln"),
+                productRepository::findAllInQueryIds);
+        List<ProductListing> listings = queries.query(wanted, ids -> fail("IN-fråga över tröskeln"),
+                productListingRepository::findAllInQueryIds);
+        List<ProductTagRepository.ProductTagName> tagNames = queries.query(wanted, ids -> fail("IN-fråga över tröskeln"),
+                productTagRepository::findTagNamesInQueryIds);
+
+        assertEquals(wanted, sorted(products.stream().map(Product::getId).toList()));
+        assertEquals(wanted, sorted(listings.stream().map(ProductListing::getProductId).toList()));
+        assertEquals(wanted, sorted(tagNames.stream().map(ProductTagRepository.ProductTagName::getProductId).toList()));
+        assertTrue(tagNames.stream().allMatch(name -> name.getTagName().equals("vegan")));
+
+        // CREATE TABLE får inte ha committat testets transaktion; den rullas tillbaka som vanligt
+        assertTrue(TestTransaction.isActive());
+        TestTransaction.flagForRollback();
+        TestTransaction.end();
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from products", Integer.class));
+    }
+}
@@ -0,0 +1,78 @@
+package se.product_service_1.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriceIndexTest {
+
+    private static PriceIndex index(long... idsAndPrices) {
+        PriceIndex index = PriceIndex.empty();
+        for (int i = 0; i < idsAndPrices.length; i += 2) {
+            index = index.with(idsAndPrices[i], idsAndPrices[i + 1]);
+        }
+        return index;
+    }
+
+    private static long[] page(PriceIndex index, double min, double max, int offset, int size, boolean descending) {
+        long[] ids = new long[size];
+        return Arrays.copyOf(ids, index.page(min, max, offset, descending, ids));
+    }
+
+    @Test
+    void page_ShouldReturnRangeInPriceOrderWithIdAsTieBreaker() {
+        PriceIndex index = index(1, 300, 2, 100, 3, 200, 4, 200, 5, 500);
+
+        assertEquals(3, index.count(150, 300));
+        assertArrayEquals(new long[]{3, 4, 1}, page(index, 150, 300, 0, 10, false));
+        assertArrayEquals(new long[]{4, 1}, page(index, 150, 300, 1, 2, false));
+        assertArrayEquals(new long[]{1, 4, 3}, page(index, 150, 300, 0, 10, true));
+        assertArrayEquals(new long[]{3}, page(index, 150, 300, 2, 10, true));
+        assertArrayEquals(new long[0], page(index, 150, 300, 3, 10, false));
+        assertArrayEquals(new long[0], page(index, 600, 900, 0, 10, false));
+        assertArrayEquals(new long[]{2, 3, 4, 1, 5},
+                page(index, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, 0, 10, false));
+    }
+
+    @Test
+    void withAndWithout_ShouldMoveAndRemoveProductsWithoutChangingEarlierSnapshots() {
+        PriceIndex before = index(1, 300, 2, 100);
+        PriceIndex moved = before.with(1, 50);
+        PriceIndex removed = moved.without(2);
+
+        assertArrayEquals(new long[]{2, 1}, page(before, 0, 1000, 0, 10, false));
+        assertArrayEquals(new long[]{1, 2}, page(moved, 0, 1000, 0, 10, false));
+        assertArrayEquals(new long[]{1}, page(removed, 0, 1000, 0, 10, false));
+        assertSame(removed, removed.without(99));
+    }
+
+    @Test
+    void withChanges_ShouldApplyMovesInsertsAndRemovalsInOnePass() {
+        PriceIndex before = index(1, 300, 2, 100, 3, 200);
+        Map<Long, Double> changes = new LinkedHashMap<>();
+        changes.put(1L, 150.0);
+        changes.put(2L, null);
+        changes.put(4L, 50.0);
+        changes.put(99L, null);
+
+        PriceIndex after = before.withChanges(changes);
+
+        assertArrayEquals(new long[]{4, 1, 3}, page(after, 0, 1000, 0, 10, false));
+        assertEquals(3, after.size());
+        assertSame(before, before.withChanges(Map.of()));
+    }
+
+    @Test
+    void merge_ShouldKeepOrderAcrossShards() {
+        PriceIndex shard0 = new PriceIndex.Builder().add(1, 100).add(2, 300).build();
+        PriceIndex shard1 = new PriceIndex.Builder().add(1_000_001, 100).add(1_000_002, 200).build();
+
+        assertArrayEquals(new long[]{1, 1_000_001, 1_000_002, 2},
+                page(PriceIndex.merge(shard0, shard1), 0, 1000, 0, 10, false));
+        assertThrows(IllegalStateException.class, () -> new PriceIndex.Builder().add(2, 300).add(1, 100));
+    }
+}
@@ -0,0 +1,80 @@
+package se.product_service_1.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import se.product_service_1.model.Category;
+import se.product_service_1.model.Product;
+import se.product_service_1.model.ProductListing;
+import se.product_service_1.repository.ProductListingRepository;
+import se.product_service_1.repository.ProductRepository;
+import se.product_service_1.repository.ProductTagRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ProductListingWriterTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private ProductTagRepository productTagRepository;
+
+    @Mock
+    private ProductListingRepository productListingRepository;
+
+    @Spy
+    private IdListQueries idListQueries = IdListQueries.chunked(512);
+
+    @InjectMocks
+    private ProductListingWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    private static ProductTagRepository.ProductTagName tagName(Long productId, String name) {
+        return new ProductTagRepository.ProductTagName() {
+            @Override
+            public Long getProductId() {
+                return productId;
+            }
+
+            @Override
+            public String getTagName() {
+                return name;
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void refresh_ShouldDenormalizeProductAndRemoveDeletedOnes() {
+        Product laptop = Product.builder().id(1L).name("Laptop").price(999.0).stockQuantity(3)
+                .category(Category.builder().id(7L).name("Electronics").build()).build();
+        ProductListing stale = ProductListing.builder().productId(2L).name("Gone").build();
+        when(productRepository.findAllById(anyCollection())).thenReturn(List.of(laptop));
+        when(productTagRepository.findTagNamesByProductIds(anyCollection()))
+                .thenReturn(List.of(tagName(1L, "tech"), tagName(1L, "sale")));
+        when(productListingRepository.findAllById(anyCollection())).thenReturn(List.of(stale));
+
+        writer.refresh(List.of(1L, 2L));
+
+        ArgumentCaptor<List<ProductListing>> saved = ArgumentCaptor.forClass(List.class);
+        verify(productListingRepository).saveAll(saved.capture());
+        ProductListing listing = saved.getValue().get(0);
+        assertEquals(1L, listing.getProductId());
+        assertEquals("Electronics", listing.getCategoryName());
+        assertEquals(List.of("tech", "sale"), listing.getTagNames());
+        verify(productListingRepository).deleteAll(argThat(deleted -> deleted.iterator().next() == stale));
+    }
+}
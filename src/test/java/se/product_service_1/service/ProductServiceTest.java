@@ -5,13 +5,18 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import se.product_service_1.dto.ProductResponse;
+import se.product_service_1.dto.ProductSearchRequest;
 import se.product_service_1.exception.ProductAlreadyExistsException;
 import se.product_service_1.exception.ProductNotFoundException;
 import se.product_service_1.model.Category;
 import se.product_service_1.model.Product;
 import se.product_service_1.model.Tag;
 import se.product_service_1.repository.CategoryRepository;
+import se.product_service_1.repository.ProductListingRepository;
 import se.product_service_1.repository.ProductRepository;
+import se.product_service_1.repository.ProductTagRepository;
 
 import java.util.*;
 
@@ -29,6 +34,30 @@ class ProductServiceTest {
     @Mock
     private TagService tagService;
 
+    @Mock
+    private ProductTagRepository productTagRepository;
+
+    @Mock
+    private FileStorageService fileStorageService;
+
+    @Mock
+    private CatalogResponseCache catalogResponseCache;
+
+    @Mock
+    private ProductListingRepository productListingRepository;
+
+    @Mock
+    private ProductListingWriter productListingWriter;
+
+    @Spy
+    private ShardRouter shardRouter = ShardRouter.single();
+
+    @Mock
+    private ProductPriceIndex productPriceIndex;
+
+    @Spy
+    private IdListQueries idListQueries = IdListQueries.chunked(512);
+
     @InjectMocks
     private ProductService productService;
 
@@ -97,6 +126,7 @@ class ProductServiceTest {
         productService.deleteProduct(1L);
 
         verify(productRepository).deleteById(1L);
+        verify(fileStorageService).deleteImageRecordsForProduct(1L);
     }
 
     @Test
@@ -172,4 +202,31 @@ class ProductServiceTest {
         assertEquals("Updated Laptop", result.getName());
         verify(productRepository).save(sampleProduct);
     }
-}
\ No newline at end of file
+
+    @Test
+    void updateProduct_ShouldThrow_WhenNewNameBelongsToAnotherProduct() {
+        sampleProduct.setName("Desktop");
+        when(productRepository.findByName("Desktop"))
+                .thenReturn(Optional.of(Product.builder().id(2L).name("Desktop").build()));
+
+        assertThrows(ProductAlreadyExistsException.class,
+                () -> productService.updateProduct(sampleProduct));
+
+        verify(productRepository, never()).save(any());
+    }
+
+    @Test
+    void searchProducts_ShouldQueryDatabase_WhenPriceIndexIsBehind() {
+        when(productPriceIndex.snapshot()).thenReturn(new PriceIndex.Builder().add(1L, 10.0).add(2L, 15.0).build());
+        // Produkt 1 har fått ett nytt pris som indexet inte känner till
+        ProductResponse moved = new ProductResponse(1L, "Laptop", "Electronics", 500.0, 5, List.of());
+        ProductResponse mouse = new ProductResponse(2L, "Mouse", "Electronics", 15.0, 5, List.of());
+        when(productListingRepository.findResponsesByProductIds(any())).thenReturn(List.of(moved, mouse));
+        when(productListingRepository.findResponses(any(), any())).thenReturn(List.of(mouse));
+        ProductSearchRequest request = ProductSearchRequest.builder()
+                .minPrice(0.0).maxPrice(20.0).sortBy("price").page(0).size(10).build();
+
+        assertEquals(List.of(mouse), productService.searchProducts(request));
+        verify(productListingRepository).findResponses(any(), any());
+    }
+}
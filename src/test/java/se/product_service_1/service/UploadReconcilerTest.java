@@ -0,0 +1,129 @@
+package se.product_service_1.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+import se.product_service_1.dto.ReconciliationReport;
+import se.product_service_1.model.ProductImage;
+import se.product_service_1.repository.ProductImageRepository;
+import se.product_service_1.repository.ProductRepository;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class UploadReconcilerTest {
+
+    @Mock
+    private FileStorageService fileStorageService;
+
+    @Mock
+    private ProductImageRepository productImageRepository;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @TempDir
+    Path uploadDir;
+
+    private UploadReconciler reconciler;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(fileStorageService.getFileStorageLocation()).thenReturn(uploadDir);
+        reconciler = new UploadReconciler(fileStorageService, productImageRepository, productRepository, ShardRouter.single(),
+                true, Duration.ofHours(1), 10, 100, 0, 0);
+    }
+
+    private Path writeFile(String name, Instant modified) throws Exception {
+        Path file = Files.write(uploadDir.resolve(name), new byte[]{1, 2, 3, 4});
+        Files.setLastModifiedTime(file, FileTime.from(modified));
+        return file;
+    }
+
+    @Test
+    void reconcile_ShouldDeleteOldUnreferencedFilesOnly() throws Exception {
+        Instant old = Instant.now().minus(Duration.ofDays(1));
+        Path orphan = writeFile("orphan.png", old);
+        Path referenced = writeFile("referenced.png", old);
+        Path fresh = writeFile("fresh.png", Instant.now());
+        when(productImageRepository.findByIdGreaterThanOrderByIdAsc(anyLong(), any(Pageable.class))).thenReturn(List.of());
+        when(productImageRepository.findFilePathsIn(anyCollection())).thenReturn(List.of("referenced.png"));
+
+        ReconciliationReport report = reconciler.reconcile();
+
+        assertFalse(Files.exists(orphan));
+        assertTrue(Files.exists(referenced));
+        assertTrue(Files.exists(fresh));
+        assertEquals(3, report.getFilesScanned());
+        assertEquals(1, report.getFilesDeleted());
+        assertEquals(4, report.getBytesReclaimed());
+    }
+
+    @Test
+    void reconcile_ShouldRemoveRecordsForDeletedProductsAndKeepMissingFilesDuringGracePeriod() throws Exception {
+        writeFile("a.png", Instant.now());
+        writeFile("b.png", Instant.now());
+        ProductImage live = ProductImage.builder().id(1L).productId(1L).fileName("a.png").filePath("a.png").build();
+        ProductImage deletedProduct = ProductImage.builder().id(2L).productId(2L).fileName("b.png").filePath("b.png").build();
+        ProductImage missingFile = ProductImage.builder().id(3L).productId(1L).fileName("c.png").filePath("c.png").build();
+        when(productImageRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(live, deletedProduct, missingFile));
+        when(productImageRepository.findByIdGreaterThanOrderByIdAsc(eq(3L), any(Pageable.class))).thenReturn(List.of());
+        when(productRepository.findExistingIds(anyCollection())).thenReturn(List.of(1L));
+
+        ReconciliationReport report = reconciler.reconcile();
+
+        verify(fileStorageService).removeImageRecords(List.of(deletedProduct));
+        assertEquals(3, report.getRecordsScanned());
+        assertEquals(1, report.getRecordsDeleted());
+    }
+
+    @Test
+    void reconcile_ShouldRemoveRecordsWhoseFileIsMissingAfterGracePeriod() {
+        reconciler = new UploadReconciler(fileStorageService, productImageRepository, productRepository, ShardRouter.single(),
+                true, Duration.ZERO, 10, 100, 0, 0);
+        ProductImage missingFile = ProductImage.builder().id(3L).productId(1L).fileName("c.png").filePath("c.png").build();
+        when(productImageRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class))).thenReturn(List.of(missingFile));
+        when(productImageRepository.findByIdGreaterThanOrderByIdAsc(eq(3L), any(Pageable.class))).thenReturn(List.of());
+        when(productRepository.findExistingIds(anyCollection())).thenReturn(List.of(1L));
+
+        ReconciliationReport report = reconciler.reconcile();
+
+        verify(fileStorageService).removeImageRecords(List.of(missingFile));
+        assertEquals(1, report.getRecordsDeleted());
+    }
+
+    @Test
+    void reconcile_ShouldSkipWhenStorageRootIsUnavailable() {
+        when(fileStorageService.getFileStorageLocation()).thenReturn(uploadDir.resolve("unmounted"));
+
+        ReconciliationReport report = reconciler.reconcile();
+
+        verifyNoInteractions(productImageRepository, productRepository);
+        verify(fileStorageService, never()).removeImageRecords(anyList());
+        assertEquals(0, report.getRecordsScanned());
+    }
+
+    @Test
+    void nextFiles_ShouldReturnSortedPageAfterCursor() throws Exception {
+        for (String name : List.of("d", "a", "c", "b", "e")) {
+            writeFile(name, Instant.now());
+        }
+
+        List<Path> page = UploadReconciler.nextFiles(uploadDir, "a", 2);
+
+        assertEquals(List.of(uploadDir.resolve("b"), uploadDir.resolve("c")), page);
+    }
+}